@@ -0,0 +1,53 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import com.tendoarisu.mmdskin.sync.util.MMDSyncNativeBridge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkSupport {
+    private BenchmarkSupport() {
+    }
+
+    static byte[] modelLikeBytes(int size, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i += 4) {
+            float value = (random.nextInt(2048) - 1024) / 64.0f;
+            int bits = Float.floatToIntBits(value);
+            for (int b = 0; b < 4 && i + b < size; b++) {
+                data[i + b] = (byte) (bits >>> (8 * b));
+            }
+        }
+        return data;
+    }
+
+    static List<BukkitResourceTransferCodec.ManifestEntry> manifest(int count) {
+        Random random = new Random(count);
+        List<BukkitResourceTransferCodec.ManifestEntry> entries = new ArrayList<>(count);
+        byte[] digest = new byte[16];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(digest);
+            entries.add(new BukkitResourceTransferCodec.ManifestEntry(
+                    (i & 1) == 0 ? "pmx" : "vmd",
+                    "model_" + (i % 200),
+                    "tex/texture_" + i + ".png",
+                    random.nextInt(8 * 1024 * 1024),
+                    ResourceHashing.toHex(digest)
+            ));
+        }
+        return entries;
+    }
+
+    static PayloadCipher cipher() {
+        try {
+            byte[] probe = MMDSyncNativeBridge.aesEncrypt(new byte[16], new byte[32]);
+            if (probe != null) {
+                return MMDSyncNativeBridge::aesEncrypt;
+            }
+        } catch (Throwable ignored) {
+        }
+        return new JcePayloadCipher();
+    }
+}
@@ -0,0 +1,73 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashingBenchmark {
+    @Param({"65536", "1048576", "16777216"})
+    public int fileSize;
+
+    private byte[] data;
+    private Path file;
+    private ResourceHashEngine engine;
+    private FileDigestCache cache;
+
+    @Setup
+    public void setup() throws IOException {
+        data = BenchmarkSupport.modelLikeBytes(fileSize, 2L);
+        file = Files.createTempFile("mmdskin-bench", ".pmx");
+        Files.write(file, data);
+        Logger logger = Logger.getLogger("HashingBenchmark");
+        engine = new ResourceHashEngine(1, logger);
+        cache = new FileDigestCache(file.getParent(), file.resolveSibling(file.getFileName() + ".idx"), engine, logger);
+        cache.get(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String md5Bytes() throws IOException {
+        return ResourceHashing.md5Hex(data);
+    }
+
+    @Benchmark
+    public String md5File() throws IOException {
+        return ResourceHashing.md5Hex(file);
+    }
+
+    @Benchmark
+    public ResourceHashEngine.FileDigests md5AndSha256File() throws IOException {
+        return engine.digest(file);
+    }
+
+    @Benchmark
+    public String cachedMd5() {
+        return cache.get(file);
+    }
+}
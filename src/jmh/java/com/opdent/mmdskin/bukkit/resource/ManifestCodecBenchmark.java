@@ -0,0 +1,73 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManifestCodecBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    public int entries;
+
+    private List<BukkitResourceTransferCodec.ManifestEntry> manifest;
+    private byte[] jsonPacket;
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setup() throws IOException {
+        manifest = BenchmarkSupport.manifest(entries);
+        jsonPacket = encodeJson();
+        binaryPayload = BukkitResourceTransferCodec.encodeManifestBinary(manifest);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return BukkitResourceTransferCodec.encode(new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.MANIFEST,
+                "manifest",
+                "srv-0123456789abcdef",
+                "",
+                "",
+                "",
+                0,
+                0,
+                0L,
+                "",
+                new byte[0],
+                manifest,
+                BukkitResourceTransferCodec.MANIFEST_JSON
+        ));
+    }
+
+    @Benchmark
+    public List<BukkitResourceTransferCodec.ManifestEntry> decodeJson() throws IOException {
+        return BukkitResourceTransferCodec.decode(jsonPacket).manifestEntries();
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return BukkitResourceTransferCodec.encodeManifestBinary(manifest);
+    }
+
+    @Benchmark
+    public List<BukkitResourceTransferCodec.ManifestEntry> decodeBinary() throws IOException {
+        return BukkitResourceTransferCodec.decodeManifestBinary(binaryPayload);
+    }
+}
@@ -0,0 +1,57 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadPreparationBenchmark {
+    @Param({"65536", "1048576", "16777216"})
+    public int fileSize;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private byte[] data;
+    private byte[] key;
+    private TransferPayloadPreparer preparer;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkSupport.modelLikeBytes(fileSize, 3L);
+        key = new byte[32];
+        preparer = new TransferPayloadPreparer(BenchmarkSupport.cipher(), ForkJoinPool.commonPool(),
+                TransferPayloadPreparer.DEFAULT_SEGMENT_SIZE);
+    }
+
+    @Benchmark
+    public byte[] prepare() throws IOException {
+        return preparer.prepare(data, "model.pmx", gzip, key);
+    }
+
+    @Benchmark
+    public long prepareSegmented() throws IOException {
+        long total = preparer.segmentedHeader(data.length, gzip).length;
+        for (int i = 0, count = preparer.segmentCount(data.length); i < count; i++) {
+            total += Integer.BYTES + preparer.prepareSegment(data, i, "model.pmx", gzip, key).length;
+        }
+        return total;
+    }
+}
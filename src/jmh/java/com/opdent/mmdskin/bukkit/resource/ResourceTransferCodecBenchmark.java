@@ -0,0 +1,66 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceTransferCodecBenchmark {
+    @Param({"1024", "24576", "262144"})
+    public int chunkSize;
+
+    private BukkitResourceTransferCodec.ResourcePacket packet;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        packet = new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.CHUNK,
+                "transfer-0001",
+                "srv-0123456789abcdef",
+                "pmx",
+                "model_001",
+                "tex/body.png",
+                7,
+                128,
+                128L * chunkSize,
+                "0123456789abcdef0123456789abcdef",
+                BenchmarkSupport.modelLikeBytes(chunkSize, 1L),
+                List.of(),
+                ""
+        );
+        encoded = BukkitResourceTransferCodec.encode(packet);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return BukkitResourceTransferCodec.encode(packet);
+    }
+
+    @Benchmark
+    public BukkitResourceTransferCodec.ResourcePacket decode() throws IOException {
+        return BukkitResourceTransferCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public BukkitResourceTransferCodec.PacketView decodeView() throws IOException {
+        return BukkitResourceTransferCodec.decodeView(encoded);
+    }
+}
@@ -1,6 +1,30 @@
 package com.opdent.mmdskin.bukkit;
 
 import com.opdent.mmdskin.bukkit.resource.BukkitResourceTransferCodec;
+import com.opdent.mmdskin.bukkit.resource.ContentChunkIndex;
+import com.opdent.mmdskin.bukkit.resource.ContentChunkListStream;
+import com.opdent.mmdskin.bukkit.resource.ContentChunkStream;
+import com.opdent.mmdskin.bukkit.resource.ContentDefinedChunker;
+import com.opdent.mmdskin.bukkit.resource.FileDigestCache;
+import com.opdent.mmdskin.bukkit.resource.ManifestMerkleTree;
+import com.opdent.mmdskin.bukkit.resource.ManifestPageStream;
+import com.opdent.mmdskin.bukkit.resource.NativePayloadCipher;
+import com.opdent.mmdskin.bukkit.resource.PayloadCipherSelector;
+import com.opdent.mmdskin.bukkit.resource.MerkleNodeStream;
+import com.opdent.mmdskin.bukkit.resource.PayloadCompressor;
+import com.opdent.mmdskin.bukkit.resource.PreparedPayloadCache;
+import com.opdent.mmdskin.bukkit.resource.ResourceContentStore;
+import com.opdent.mmdskin.bukkit.resource.ResourceChunkStream;
+import com.opdent.mmdskin.bukkit.resource.ResourceHashEngine;
+import com.opdent.mmdskin.bukkit.resource.ResourceManifestIndex;
+import com.opdent.mmdskin.bukkit.resource.ResourceTransferEngine;
+import com.opdent.mmdskin.bukkit.resource.ResourceTreeWatcher;
+import com.opdent.mmdskin.bukkit.resource.ResourceUploadSession;
+import com.opdent.mmdskin.bukkit.resource.SegmentedArchive;
+import com.opdent.mmdskin.bukkit.resource.SegmentedArchiveCache;
+import com.opdent.mmdskin.bukkit.resource.TransferPayload;
+import com.opdent.mmdskin.bukkit.resource.TransferPayloadPreparer;
+import com.opdent.mmdskin.bukkit.resource.UploadQuota;
 import com.tendoarisu.mmdskin.sync.util.MMDSyncNativeBridge;
 import com.tendoarisu.mmdskin.sync.util.MMDSyncNativeLoader;
 import org.bukkit.Bukkit;
@@ -17,11 +41,13 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.plugin.messaging.PluginMessageListener;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.security.KeyFactory;
 import java.security.PublicKey;
@@ -30,7 +56,6 @@ import java.security.spec.X509EncodedKeySpec;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
-import java.util.stream.Stream;
 import javax.crypto.Cipher;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -38,19 +63,34 @@ import javax.crypto.spec.SecretKeySpec;
 public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener, Listener, CommandExecutor, TabCompleter {
 
     private static final String CHANNEL_SYNC_URL = "mmdsync:sync_url";
-    private File modelDir;
-    private final Map<Path, CacheEntry> md5Cache = new ConcurrentHashMap<>();
+    private volatile File modelDir;
+    private ResourceHashEngine hashEngine;
+    private FileDigestCache md5Cache;
     
-    private byte[] serverSyncKey;
+    private volatile byte[] serverSyncKey;
+    private volatile String serverSyncKeyFingerprint = "";
     private final SecureRandom secureRandom = new SecureRandom();
     private final Map<UUID, PendingHandshake> pendingHandshakes = new ConcurrentHashMap<>();
     private static final long HANDSHAKE_TTL_MS = 60_000L;
     private static final String CHANNEL_MMDSYNC_RESOURCE = "mmdsync:resource_transfer";
     private static final int RESOURCE_CHUNK_SIZE = 24 * 1024;
+    private static final String UPLOAD_RESUME = "resume";
+    private static final String UPLOAD_DEDUP = "dedup";
     private final Map<String, ResourceUploadSession> resourceUploadSessions = new ConcurrentHashMap<>();
-
-    private static final byte[] MMDARC_HEADER = "MMDARC".getBytes(StandardCharsets.UTF_8);
-    private static final byte MMDARC_VERSION = 0x01;
+    private final Map<String, UUID> dedupUploads = new ConcurrentHashMap<>();
+    private final UploadQuota uploadQuota = new UploadQuota(0L, 0L, 0L, 0L);
+    private volatile int maxUploadSessionsPerPlayer;
+    private volatile long uploadStaleMillis;
+    private ContentChunkIndex contentChunks;
+    private ResourceTransferEngine transferEngine;
+    private ResourceManifestIndex manifestIndex;
+    private ResourceTreeWatcher treeWatcher;
+    private PreparedPayloadCache payloadCache;
+    private SegmentedArchiveCache segmentedArchives;
+    private final PayloadCompressor payloadCompressor = new PayloadCompressor();
+    private volatile boolean gzipEnabled;
+
+    private TransferPayloadPreparer payloadPreparer;
 
     private static class PendingHandshake {
         final String challenge;
@@ -62,32 +102,6 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
         }
     }
 
-    private static class ResourceUploadSession {
-        final UUID playerUuid;
-        final String zone;
-        final String folderName;
-        final String relativePath;
-        final Path tempFile;
-
-        ResourceUploadSession(UUID playerUuid, String zone, String folderName, String relativePath, Path tempFile) {
-            this.playerUuid = playerUuid;
-            this.zone = zone;
-            this.folderName = folderName;
-            this.relativePath = relativePath;
-            this.tempFile = tempFile;
-        }
-    }
-
-    private static class CacheEntry {
-        final String md5;
-        final long lastModified;
-
-        CacheEntry(String md5, long lastModified) {
-            this.md5 = md5;
-            this.lastModified = lastModified;
-        }
-    }
-
     private static final String CHANNEL_3DSKIN_PACK = "3d-skin:network_pack";
 
     private static final String CHANNEL_3DSKIN_C2S = "3d-skin:network_c2s";
@@ -105,11 +119,16 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
 
     private final Map<UUID, String> playerModels = new ConcurrentHashMap<>();
 
+    private final Map<UUID, Long> manifestAcks = new ConcurrentHashMap<>();
+
+    private final Map<UUID, Long> manifestPushed = new ConcurrentHashMap<>();
+
     private String serverSecret;
 
     @Override
     public void onEnable() {
         try {
+            MMDSyncNativeLoader.setCacheDirectory(getDataFolder().toPath().resolve("natives"));
             MMDSyncNativeLoader.load();
         } catch (Throwable t) {
             getLogger().warning("Failed to load native library: " + t.getMessage());
@@ -152,13 +171,58 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
 
         loadSyncKey();
 
+        transferEngine = new ResourceTransferEngine(
+                this,
+                getConfig().getInt("sync.transfer.workerThreads", 0),
+                getConfig().getInt("sync.transfer.maxQueuedPerPlayer", 256),
+                getConfig().getInt("sync.transfer.windowChunks", 16)
+        );
+        applyTransferSettings();
+        transferEngine.start();
+
+        hashEngine = new ResourceHashEngine(getConfig().getInt("sync.hashing.parallelism", 0), getLogger());
+        payloadPreparer = new TransferPayloadPreparer(
+                PayloadCipherSelector.select(new NativePayloadCipher(), getLogger()).cipher(),
+                hashEngine.executor(),
+                getConfig().getInt("sync.transfer.segmentKilobytes", 1024) * 1024
+        );
+        md5Cache = new FileDigestCache(
+                new File(getServer().getWorldContainer(), "3d-skin").toPath(),
+                getDataFolder().toPath().resolve("file_digests.idx"),
+                hashEngine,
+                getLogger()
+        );
+
+        manifestIndex = new ResourceManifestIndex(getDataFolder().toPath().resolve("resource_manifest.idx"), hashEngine, getLogger());
+        manifestIndex.load();
+        manifestIndex.setChangeListener(version -> {
+            if (isEnabled()) {
+                Bukkit.getScheduler().runTask(this, this::pushManifestChanges);
+            }
+        });
+
+        payloadCache = new PreparedPayloadCache(
+                getDataFolder().toPath().resolve("payload-cache"),
+                getConfig().getLong("sync.cache.memoryMegabytes", 256L) * 1024L * 1024L,
+                getConfig().getLong("sync.cache.diskMegabytes", 2048L) * 1024L * 1024L,
+                getLogger()
+        );
+        Bukkit.getScheduler().runTaskAsynchronously(this, payloadCache::open);
+        segmentedArchives = new SegmentedArchiveCache(payloadCache, payloadPreparer);
+        contentChunks = new ContentChunkIndex(getConfig().getLong("sync.cache.chunkIndexMegabytes", 32L) * 1024L * 1024L);
+
         if (getConfig().getBoolean("sync.enabled", true)) {
             loadCache();
-            md5Cache.clear();
 
             modelDir = new File(getServer().getWorldContainer(), "3d-skin");
             if (!modelDir.exists()) modelDir.mkdirs();
+
+            Map<String, Path> zoneRoots = resolveZoneRoots();
+            Bukkit.getScheduler().runTaskAsynchronously(this, () -> manifestIndex.refresh(zoneRoots));
         }
+        restartTreeWatcher();
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, this::reapStaleUploads, 20L, 20L * 60L);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, manifestIndex::save, 20L * 30L, 20L * 30L);
 
         this.getServer().getPluginManager().registerEvents(this, this);
         this.getCommand("mmdsync").setExecutor(this);
@@ -181,18 +245,18 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
             reloadConfig();
 
             loadSyncKey();
+            applyTransferSettings();
             
             saveCache();
 
             boolean syncEnabled = getConfig().getBoolean("sync.enabled", true);
             if (syncEnabled) {
-                loadCache();
-                md5Cache.clear();
-
                 modelDir = new File(getServer().getWorldContainer(), "3d-skin");
                 if (!modelDir.exists()) modelDir.mkdirs();
             }
 
+            restartTreeWatcher();
+
             if (syncEnabled) {
                 executeSyncCommand(sender, true);
             } else {
@@ -208,8 +272,9 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
     private boolean executeSyncCommand(CommandSender sender, boolean reloaded) {
         sender.sendMessage(reloaded ? "§a配置重载完成，正在向全服重新同步资源..." : "§a正在向全服同步 MMD 资源...");
 
-        md5Cache.clear();
-        loadCache();
+        manifestIndex.markDirty();
+        payloadCompressor.clear();
+        contentChunks.clear();
 
         for (Player player : Bukkit.getOnlinePlayers()) {
             sendSyncUrl(player);
@@ -246,90 +311,39 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
         return java.util.List.of();
     }
 
-    private String getFolderMD5(Path folder, boolean forceFresh) {
-        try (Stream<Path> stream = Files.walk(folder)) {
-            if (forceFresh) {
-                invalidateCacheUnder(folder);
-            }
-            StringBuilder combined = new StringBuilder();
-            stream.filter(Files::isRegularFile)
-                  .sorted()
-                  .forEach(p -> combined.append(getCachedMD5(p)));
-            
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            byte[] hash = digest.digest(combined.toString().getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
-    private String getCachedMD5(Path path) {
-        try {
-            if (!Files.exists(path)) return "";
-            long lastModified = Files.getLastModifiedTime(path).toMillis();
-            CacheEntry entry = md5Cache.get(path);
-            if (entry != null && entry.lastModified == lastModified) return entry.md5;
-
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            try (InputStream is = Files.newInputStream(path)) {
-                byte[] buffer = new byte[8192];
-                int read;
-                while ((read = is.read(buffer)) != -1) digest.update(buffer, 0, read);
-            }
-            byte[] hash = digest.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) sb.append(String.format("%02x", b));
-            String md5 = sb.toString();
-            md5Cache.put(path, new CacheEntry(md5, lastModified));
-            return md5;
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
-    private void invalidateCacheUnder(Path root) {
-        try {
-            Path normalizedRoot = root.normalize();
-            md5Cache.entrySet().removeIf(entry -> entry.getKey().normalize().startsWith(normalizedRoot));
-        } catch (Exception ignored) {
-        }
-    }
-
     private void loadCache() {
-        File cacheFile = new File(getDataFolder(), "md5_cache.dat");
-        if (!cacheFile.exists()) return;
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(cacheFile))) {
-            int size = dis.readInt();
-            for (int i = 0; i < size; i++) {
-                String pathStr = dis.readUTF();
-                String md5 = dis.readUTF();
-                long lastModified = dis.readLong();
-                md5Cache.put(new File(pathStr).toPath(), new CacheEntry(md5, lastModified));
-            }
+        md5Cache.load();
+        try {
+            Files.deleteIfExists(getDataFolder().toPath().resolve("md5_cache.dat"));
         } catch (IOException e) {
-            getLogger().warning("Failed to load MD5 cache: " + e.getMessage());
+            getLogger().warning("Failed to delete legacy MD5 cache: " + e.getMessage());
         }
     }
 
     private void saveCache() {
-        File cacheFile = new File(getDataFolder(), "md5_cache.dat");
-        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(cacheFile))) {
-            dos.writeInt(md5Cache.size());
-            for (Map.Entry<Path, CacheEntry> entry : md5Cache.entrySet()) {
-                dos.writeUTF(entry.getKey().toString());
-                dos.writeUTF(entry.getValue().md5);
-                dos.writeLong(entry.getValue().lastModified);
-            }
-        } catch (IOException e) {
-            getLogger().warning("Failed to save MD5 cache: " + e.getMessage());
-        }
+        md5Cache.save();
     }
 
     @Override
     public void onDisable() {
+        resourceUploadSessions.values().forEach(ResourceUploadSession::close);
+        if (treeWatcher != null) {
+            treeWatcher.stop();
+            treeWatcher = null;
+        }
+        if (transferEngine != null) {
+            transferEngine.shutdown();
+            transferEngine = null;
+        }
+        if (manifestIndex != null) {
+            manifestIndex.save();
+        }
+        if (md5Cache != null) {
+            saveCache();
+        }
+        if (hashEngine != null) {
+            hashEngine.shutdown();
+        }
         this.getServer().getMessenger().unregisterIncomingPluginChannel(this);
         this.getServer().getMessenger().unregisterOutgoingPluginChannel(this);
     }
@@ -356,6 +370,55 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
         }, 20L);
     }
 
+    private void restartTreeWatcher() {
+        if (treeWatcher != null) {
+            treeWatcher.stop();
+            treeWatcher = null;
+        }
+        if (!getConfig().getBoolean("sync.enabled", true) || !getConfig().getBoolean("sync.watch.enabled", true)) {
+            return;
+        }
+        ResourceTreeWatcher watcher = new ResourceTreeWatcher(
+                resolveZoneRoots(),
+                getConfig().getLong("sync.watch.debounceMillis", 1500L),
+                new ResourceTreeWatcher.Listener() {
+                    @Override
+                    public void filesChanged(String zone, Path zoneRoot, Set<Path> paths) {
+                        manifestIndex.refreshFiles(zone, zoneRoot, paths);
+                    }
+
+                    @Override
+                    public void zoneOverflowed(String zone, Path zoneRoot) {
+                        manifestIndex.rescanZone(zone, zoneRoot);
+                    }
+                },
+                getLogger()
+        );
+        try {
+            watcher.start();
+            treeWatcher = watcher;
+        } catch (IOException e) {
+            watcher.stop();
+            getLogger().log(Level.WARNING, "无法启动资源目录监听，资源变更需通过 /mmdsync 刷新。", e);
+        }
+    }
+
+    private void applyTransferSettings() {
+        gzipEnabled = getConfig().getBoolean("sync.enableGzip", true);
+        transferEngine.setEgressBudget(
+                getConfig().getLong("sync.transfer.globalBytesPerTick", 1024L * 1024L),
+                getConfig().getLong("sync.transfer.playerBytesPerTick", 128L * 1024L)
+        );
+        uploadQuota.setLimits(
+                getConfig().getLong("sync.upload.maxFileMegabytes", 256L) * 1024L * 1024L,
+                getConfig().getLong("sync.upload.playerQuotaMegabytes", 512L) * 1024L * 1024L,
+                getConfig().getLong("sync.upload.globalQuotaMegabytes", 2048L) * 1024L * 1024L,
+                getConfig().getLong("sync.upload.playerMegabytesPerMinute", 256L) * 1024L * 1024L
+        );
+        maxUploadSessionsPerPlayer = getConfig().getInt("sync.upload.maxSessionsPerPlayer", 4);
+        uploadStaleMillis = Math.max(1L, getConfig().getLong("sync.upload.staleMinutes", 30L)) * 60_000L;
+    }
+
     private void loadSyncKey() {
         String keyBase64 = getConfig().getString("sync.key", "");
         if (keyBase64.isEmpty() || keyBase64.length() < 32) {
@@ -377,6 +440,7 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
                 saveConfig();
             }
         }
+        serverSyncKeyFingerprint = PreparedPayloadCache.fingerprint(serverSyncKey);
     }
 
     private String normalizePem(String pem) {
@@ -535,16 +599,14 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
         UUID uuid = event.getPlayer().getUniqueId();
         playerModels.remove(uuid);
         pendingHandshakes.remove(uuid);
-        resourceUploadSessions.entrySet().removeIf(entry -> {
-            if (!entry.getValue().playerUuid.equals(uuid)) {
-                return false;
-            }
-            try {
-                Files.deleteIfExists(entry.getValue().tempFile);
-            } catch (IOException ignored) {
+        transferEngine.cancel(uuid);
+        manifestAcks.remove(uuid);
+        manifestPushed.remove(uuid);
+        for (ResourceUploadSession session : resourceUploadSessions.values()) {
+            if (session.playerUuid().equals(uuid)) {
+                session.close();
             }
-            return true;
-        });
+        }
 
         for (String ch : preferredOutgoingChannels) {
             try {
@@ -559,7 +621,9 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
     @Override
     public void onPluginMessageReceived(String channel, Player sender, byte[] message) {
         if (CHANNEL_MMDSYNC_RESOURCE.equals(channel)) {
-            handleResourceTransferPacket(sender, message);
+            if (!transferEngine.submit(sender.getUniqueId(), () -> handleResourceTransferPacket(sender, message))) {
+                rejectResourceTransferPacket(sender, message);
+            }
             return;
         }
         if (!incomingChannels.contains(channel)) return;
@@ -610,22 +674,26 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
     }
 
     private void handleResourceTransferPacket(Player sender, byte[] message) {
-        BukkitResourceTransferCodec.ResourcePacket packet;
+        BukkitResourceTransferCodec.PacketView view;
         try {
-            packet = BukkitResourceTransferCodec.decode(message);
+            view = BukkitResourceTransferCodec.decodeView(message);
         } catch (IOException e) {
             getLogger().log(Level.WARNING, "解析资源传输包失败: " + sender.getName(), e);
             return;
         }
+        BukkitResourceTransferCodec.ResourcePacket packet = view.packet();
 
         try {
             switch (packet.opCode()) {
-                case BukkitResourceTransferCodec.MANIFEST -> sendResourceManifest(sender, packet.transferId());
-                case BukkitResourceTransferCodec.REQUEST_CHUNK -> sendRequestedResourceChunks(sender, packet);
-                case BukkitResourceTransferCodec.UPLOAD_BEGIN -> beginResourceUpload(sender, packet);
-                case BukkitResourceTransferCodec.UPLOAD_CHUNK -> appendResourceUploadChunk(sender, packet);
+                case BukkitResourceTransferCodec.MANIFEST -> sendResourceManifest(sender, packet);
+                case BukkitResourceTransferCodec.REQUEST_CHUNK -> sendRequestedResourceChunks(sender, packet, view.payload());
+                case BukkitResourceTransferCodec.CHUNK_LIST -> sendContentChunkList(sender, packet);
+                case BukkitResourceTransferCodec.UPLOAD_BEGIN -> beginResourceUpload(sender, packet, view.payload());
+                case BukkitResourceTransferCodec.UPLOAD_CHUNK -> appendResourceUploadChunk(sender, packet, view.payload());
                 case BukkitResourceTransferCodec.UPLOAD_FINISH -> finishResourceUpload(sender, packet.transferId());
-                case BukkitResourceTransferCodec.ABORT -> abortResourceUpload(packet.transferId());
+                case BukkitResourceTransferCodec.ABORT -> abortResourceUpload(sender.getUniqueId(), packet.transferId());
+                case BukkitResourceTransferCodec.ACK -> handleResourceAck(sender, packet);
+                case BukkitResourceTransferCodec.MERKLE_QUERY -> sendMerkleNode(sender, packet);
                 default -> sendResourceAck(sender, packet.transferId(), "ignored");
             }
         } catch (Exception e) {
@@ -634,11 +702,37 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
         }
     }
 
-    private void sendResourceManifest(Player player, String transferId) throws IOException {
-        List<BukkitResourceTransferCodec.ManifestEntry> entries = buildResourceManifestEntries();
+    private void rejectResourceTransferPacket(Player sender, byte[] message) {
+        BukkitResourceTransferCodec.ResourcePacket packet;
+        try {
+            packet = BukkitResourceTransferCodec.decodeView(message).packet();
+        } catch (IOException e) {
+            return;
+        }
+        getLogger().warning("资源传输队列已满，拒绝请求: " + sender.getName() + ", transferId=" + packet.transferId());
+        abortResourceUpload(sender.getUniqueId(), packet.transferId());
+        sendResourceAbort(sender, packet.transferId(), "server_busy");
+    }
+
+    private void sendResourceManifest(Player player, BukkitResourceTransferCodec.ResourcePacket request) throws IOException {
+        long version = manifestIndex.version();
+        List<BukkitResourceTransferCodec.ManifestEntry> entries = manifestIndex.entries(resolveZoneRoots());
+        int protocol = BukkitResourceTransferCodec.protocolVersion(request.message());
+        if (protocol >= BukkitResourceTransferCodec.PROTOCOL_MANIFEST_DELTA) {
+            long since = BukkitResourceTransferCodec.manifestSince(request.message());
+            if (since >= 0L && sendManifestDelta(player, request.transferId(), manifestIndex.changesSince(since))) {
+                return;
+            }
+        }
+        if (protocol >= BukkitResourceTransferCodec.PROTOCOL_PAGED_MANIFEST) {
+            streamResource(player, request.transferId(),
+                    new ManifestPageStream(entries, request.transferId(), buildStableServerId(), version, RESOURCE_CHUNK_SIZE));
+            return;
+        }
+        boolean binary = protocol >= BukkitResourceTransferCodec.PROTOCOL_BINARY_MANIFEST;
         sendResourcePacket(player, new BukkitResourceTransferCodec.ResourcePacket(
                 BukkitResourceTransferCodec.MANIFEST,
-                transferId,
+                request.transferId(),
                 buildStableServerId(),
                 "",
                 "",
@@ -647,46 +741,360 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
                 0,
                 0L,
                 "",
-                new byte[0],
-                entries,
-                "manifest"
+                binary ? BukkitResourceTransferCodec.encodeManifestBinary(entries) : new byte[0],
+                binary ? List.of() : entries,
+                binary ? BukkitResourceTransferCodec.MANIFEST_BINARY : BukkitResourceTransferCodec.MANIFEST_JSON
         ));
     }
 
-    private void sendRequestedResourceChunks(Player player, BukkitResourceTransferCodec.ResourcePacket packet) throws IOException {
-        Path file = resolveResourceFile(packet.zone(), packet.folderName(), packet.relativePath());
-        if (file == null || !Files.isRegularFile(file)) {
-            sendResourceAbort(player, packet.transferId(), "not_found");
-            return;
+    private void sendMerkleNode(Player player, BukkitResourceTransferCodec.ResourcePacket query) throws IOException {
+        ManifestMerkleTree tree = manifestIndex.merkleTree(resolveZoneRoots());
+        String zone = query.zone() == null ? "" : query.zone();
+        String folder = query.folderName() == null ? "" : query.folderName();
+        String hash;
+        if (zone.isEmpty()) {
+            hash = tree.rootHash();
+        } else if (folder.isEmpty()) {
+            hash = tree.zoneHash(zone);
+        } else {
+            hash = tree.folderHash(zone, folder);
         }
 
-        byte[] rawData = Files.readAllBytes(file);
-        byte[] data = prepareTransferPayload(rawData, packet.relativePath());
-        String digest = md5Hex(rawData);
-        int chunkCount = Math.max(1, (data.length + RESOURCE_CHUNK_SIZE - 1) / RESOURCE_CHUNK_SIZE);
-        for (int i = 0; i < chunkCount; i++) {
-            int start = i * RESOURCE_CHUNK_SIZE;
-            int end = Math.min(data.length, start + RESOURCE_CHUNK_SIZE);
-            byte[] chunk = Arrays.copyOfRange(data, start, end);
+        if (!hash.isEmpty() && hash.equalsIgnoreCase(query.digest())) {
             sendResourcePacket(player, new BukkitResourceTransferCodec.ResourcePacket(
-                    BukkitResourceTransferCodec.CHUNK,
-                    packet.transferId(),
+                    BukkitResourceTransferCodec.MERKLE_NODE,
+                    query.transferId(),
                     buildStableServerId(),
-                    packet.zone(),
-                    packet.folderName(),
-                    packet.relativePath(),
-                    i,
-                    chunkCount,
-                    rawData.length,
-                    digest,
-                    chunk,
+                    zone,
+                    folder,
+                    "",
+                    0,
+                    1,
+                    0L,
+                    hash,
+                    new byte[0],
                     List.of(),
-                    ""
+                    BukkitResourceTransferCodec.MERKLE_MATCH
             ));
+            return;
+        }
+
+        MerkleNodeStream stream;
+        if (zone.isEmpty()) {
+            stream = MerkleNodeStream.children(query.transferId(), buildStableServerId(), zone, folder, hash, tree.rootChildren(), RESOURCE_CHUNK_SIZE);
+        } else if (folder.isEmpty()) {
+            stream = MerkleNodeStream.children(query.transferId(), buildStableServerId(), zone, folder, hash, tree.zoneChildren(zone), RESOURCE_CHUNK_SIZE);
+        } else {
+            stream = MerkleNodeStream.files(query.transferId(), buildStableServerId(), zone, folder, hash, tree.folderFiles(zone, folder), RESOURCE_CHUNK_SIZE);
+        }
+        streamResource(player, query.transferId(), stream);
+    }
+
+    private void handleResourceAck(Player player, BukkitResourceTransferCodec.ResourcePacket packet) throws IOException {
+        if (!BukkitResourceTransferCodec.MANIFEST_ACK.equals(packet.message())) {
+            sendResourceAck(player, packet.transferId(), "ignored");
+            return;
+        }
+        long version = BukkitResourceTransferCodec.manifestVersion(packet.digest());
+        if (version < 0L) {
+            return;
+        }
+        manifestAcks.put(player.getUniqueId(), version);
+        if (version < manifestIndex.version()) {
+            pushManifestDelta(player);
+        }
+    }
+
+    private void pushManifestChanges() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (manifestAcks.containsKey(player.getUniqueId())) {
+                transferEngine.submit(player.getUniqueId(), () -> pushManifestDelta(player));
+            }
+        }
+    }
+
+    private void pushManifestDelta(Player player) {
+        UUID uuid = player.getUniqueId();
+        Long acknowledged = manifestAcks.get(uuid);
+        long current = manifestIndex.version();
+        if (acknowledged == null || current <= manifestPushed.getOrDefault(uuid, acknowledged)) {
+            return;
+        }
+        manifestPushed.put(uuid, current);
+        try {
+            if (!sendManifestDelta(player, "", manifestIndex.changesSince(acknowledged))) {
+                sendResourcePacket(player, new BukkitResourceTransferCodec.ResourcePacket(
+                        BukkitResourceTransferCodec.MANIFEST_DELTA,
+                        "",
+                        buildStableServerId(),
+                        "",
+                        "",
+                        "",
+                        0,
+                        0,
+                        acknowledged,
+                        Long.toString(current),
+                        new byte[0],
+                        List.of(),
+                        BukkitResourceTransferCodec.MANIFEST_RESET
+                ));
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "推送资源清单变更失败: " + player.getName(), e);
+        }
+    }
+
+    private boolean sendManifestDelta(Player player, String transferId, ResourceManifestIndex.ManifestDelta delta) throws IOException {
+        if (delta == null) {
+            return false;
+        }
+        List<BukkitResourceTransferCodec.ManifestEntry> changed = new ArrayList<>(delta.upserts());
+        changed.addAll(delta.removals());
+        byte[] payload = BukkitResourceTransferCodec.encodeManifestBinary(changed);
+        if (payload.length > RESOURCE_CHUNK_SIZE) {
+            return false;
+        }
+        sendResourcePacket(player, new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.MANIFEST_DELTA,
+                transferId,
+                buildStableServerId(),
+                "",
+                "",
+                "",
+                delta.upserts().size(),
+                changed.size(),
+                delta.fromVersion(),
+                Long.toString(delta.toVersion()),
+                payload,
+                List.of(),
+                BukkitResourceTransferCodec.MANIFEST_BINARY
+        ));
+        return true;
+    }
+
+    private record RequestedResource(String zone, String folderName, String relativePath, Path file) {
+    }
+
+    private RequestedResource resolveRequestedResource(BukkitResourceTransferCodec.ResourcePacket packet) {
+        String zone = packet.zone();
+        String folderName = packet.folderName();
+        String relativePath = packet.relativePath();
+        if (relativePath.isEmpty()
+                && BukkitResourceTransferCodec.protocolVersion(packet.message()) >= BukkitResourceTransferCodec.PROTOCOL_CONTENT_ADDRESSED) {
+            ResourceContentStore.Location location = locateContent(packet.digest(), -1L);
+            if (location != null) {
+                zone = location.zone();
+                folderName = location.folderName();
+                relativePath = location.relativePath();
+            }
+        }
+        Path file = resolveResourceFile(zone, folderName, relativePath);
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return new RequestedResource(zone, folderName, relativePath, file);
+    }
+
+    private void sendContentChunkList(Player player, BukkitResourceTransferCodec.ResourcePacket packet) throws IOException {
+        RequestedResource resource = resolveRequestedResource(packet);
+        if (resource == null) {
+            sendResourceAbort(player, packet.transferId(), "not_found");
+            return;
         }
+        Path file = resource.file();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String sha256 = contentDigest(resource.zone(), file, attributes);
+        String chunkKey = contentChunkKey(sha256, file, attributes);
+        streamResource(player, packet.transferId(), new ContentChunkListStream(
+                new BukkitResourceTransferCodec.ResourcePacket(
+                        BukkitResourceTransferCodec.CHUNK_LIST,
+                        packet.transferId(),
+                        buildStableServerId(),
+                        resource.zone(),
+                        resource.folderName(),
+                        resource.relativePath(),
+                        0,
+                        0,
+                        attributes.size(),
+                        sha256 == null ? "" : sha256,
+                        new byte[0],
+                        List.of(),
+                        BukkitResourceTransferCodec.CONTENT_CHUNKS
+                ),
+                () -> contentChunks.chunks(chunkKey, file),
+                RESOURCE_CHUNK_SIZE
+        ));
+    }
+
+    private void sendContentChunks(Player player, BukkitResourceTransferCodec.ResourcePacket packet, RequestedResource resource,
+                                   BasicFileAttributes attributes, ByteBuffer bitmap) throws IOException {
+        Path file = resource.file();
+        String sha256 = contentDigest(resource.zone(), file, attributes);
+        if (sha256 == null || !sha256.equalsIgnoreCase(packet.digest())) {
+            sendResourceAbort(player, packet.transferId(), "content_changed");
+            return;
+        }
+        BitSet selected = bitmap.hasRemaining() ? BitSet.valueOf(bitmap) : null;
+        boolean encrypt = serverSyncKey != null
+                && TransferPayloadPreparer.shouldEncrypt(resource.relativePath())
+                && !TransferPayloadPreparer.isEncryptedArchive(file);
+        byte[] key = serverSyncKey;
+        String relativePath = resource.relativePath();
+        String chunkKey = contentChunkKey(sha256, file, attributes);
+        streamResource(player, packet.transferId(), new ContentChunkStream(
+                TransferPayload.open(file),
+                new BukkitResourceTransferCodec.ResourcePacket(
+                        BukkitResourceTransferCodec.CHUNK,
+                        packet.transferId(),
+                        buildStableServerId(),
+                        resource.zone(),
+                        resource.folderName(),
+                        relativePath,
+                        0,
+                        0,
+                        attributes.size(),
+                        sha256,
+                        new byte[0],
+                        List.of(),
+                        BukkitResourceTransferCodec.CONTENT_CHUNKS
+                ),
+                () -> contentChunks.chunks(chunkKey, file),
+                selected,
+                encrypt ? chunk -> payloadPreparer.prepare(chunk, relativePath, false, key) : chunk -> chunk
+        ));
     }
 
-    private void beginResourceUpload(Player sender, BukkitResourceTransferCodec.ResourcePacket packet) throws IOException {
+    private String contentChunkKey(String sha256, Path file, BasicFileAttributes attributes) {
+        if (sha256 != null) {
+            return sha256;
+        }
+        return file.toAbsolutePath().normalize() + "\n" + attributes.size() + "\n" + attributes.lastModifiedTime().toMillis();
+    }
+
+    private void sendRequestedResourceChunks(Player player, BukkitResourceTransferCodec.ResourcePacket packet, ByteBuffer bitmap) throws IOException {
+        RequestedResource resource = resolveRequestedResource(packet);
+        if (resource == null) {
+            sendResourceAbort(player, packet.transferId(), "not_found");
+            return;
+        }
+        String zone = resource.zone();
+        String folderName = resource.folderName();
+        String relativePath = resource.relativePath();
+        Path file = resource.file();
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (BukkitResourceTransferCodec.protocolVersion(packet.message()) >= BukkitResourceTransferCodec.PROTOCOL_CONTENT_CHUNKS
+                && BukkitResourceTransferCodec.hasCapability(packet.message(), BukkitResourceTransferCodec.CONTENT_CHUNKS)) {
+            sendContentChunks(player, packet, resource, attributes, bitmap);
+            return;
+        }
+        String digest = md5Cache.get(file);
+        boolean archived = TransferPayloadPreparer.isEncryptedArchive(file);
+        boolean gzip = !archived
+                && gzipEnabled
+                && BukkitResourceTransferCodec.hasCapability(packet.message(), BukkitResourceTransferCodec.ENCODING_GZIP)
+                && payloadCompressor.shouldCompress(file, attributes.size(), attributes.lastModifiedTime().toMillis());
+        if (!archived && serverSyncKey != null && TransferPayloadPreparer.shouldEncrypt(relativePath)
+                && BukkitResourceTransferCodec.protocolVersion(packet.message()) >= BukkitResourceTransferCodec.PROTOCOL_SEGMENTED_ARCHIVE) {
+            sendSegmentedArchive(player, packet, bitmap, resource, attributes, gzip, digest);
+            return;
+        }
+        TransferPayload payload = openPreparedPayload(zone, file, attributes, relativePath, archived, gzip);
+        String message = gzip ? BukkitResourceTransferCodec.ENCODING_GZIP : "";
+        BitSet selected = null;
+        if (BukkitResourceTransferCodec.protocolVersion(packet.message()) >= BukkitResourceTransferCodec.PROTOCOL_RESUMABLE_CHUNKS) {
+            String tag;
+            try {
+                tag = ResourceChunkStream.payloadTag(payload, digest);
+            } catch (IOException e) {
+                payload.close();
+                throw e;
+            }
+            message = BukkitResourceTransferCodec.withPayloadTag(message, tag);
+            if (tag.equals(BukkitResourceTransferCodec.payloadTag(packet.message()))) {
+                selected = requestedChunks(packet, bitmap, ResourceChunkStream.chunkCount(payload.size(), RESOURCE_CHUNK_SIZE));
+            }
+        }
+        ResourceChunkStream stream = new ResourceChunkStream(payload, new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.CHUNK,
+                packet.transferId(),
+                buildStableServerId(),
+                zone,
+                folderName,
+                relativePath,
+                0,
+                0,
+                attributes.size(),
+                digest,
+                new byte[0],
+                List.of(),
+                message
+        ), RESOURCE_CHUNK_SIZE, selected);
+        streamResource(player, packet.transferId(), stream);
+    }
+
+    private void sendSegmentedArchive(Player player, BukkitResourceTransferCodec.ResourcePacket packet, ByteBuffer bitmap,
+                                      RequestedResource resource, BasicFileAttributes attributes, boolean gzip, String digest) throws IOException {
+        String encoding = (gzip ? BukkitResourceTransferCodec.ENCODING_GZIP : "") + ";segmented";
+        SegmentedArchive archive = segmentedArchives.open(
+                preparedPayloadKey(resource.zone(), resource.file(), attributes, serverSyncKeyFingerprint, encoding),
+                resource.file(),
+                attributes.size(),
+                resource.relativePath(),
+                gzip,
+                serverSyncKey
+        );
+        try {
+            archive.segment(0);
+        } catch (IOException e) {
+            archive.close();
+            throw e;
+        }
+        String tag = archive.tag(digest);
+        BitSet selected = null;
+        if (tag.equals(BukkitResourceTransferCodec.payloadTag(packet.message()))) {
+            selected = requestedChunks(packet, bitmap, ResourceChunkStream.chunkCount(archive.size(), RESOURCE_CHUNK_SIZE));
+        }
+        ResourceChunkStream stream = new ResourceChunkStream(archive, new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.CHUNK,
+                packet.transferId(),
+                buildStableServerId(),
+                resource.zone(),
+                resource.folderName(),
+                resource.relativePath(),
+                0,
+                0,
+                attributes.size(),
+                digest,
+                new byte[0],
+                List.of(),
+                BukkitResourceTransferCodec.withPayloadTag(gzip ? BukkitResourceTransferCodec.ENCODING_GZIP : "", tag)
+        ), RESOURCE_CHUNK_SIZE, selected);
+        streamResource(player, packet.transferId(), stream);
+    }
+
+    private void streamResource(Player player, String transferId, ResourceTransferEngine.PacketStream stream) {
+        transferEngine.stream(player.getUniqueId(), CHANNEL_MMDSYNC_RESOURCE, stream,
+                error -> sendResourceAbort(player, transferId, "server_error:" + error.getClass().getSimpleName()));
+    }
+
+    private BitSet requestedChunks(BukkitResourceTransferCodec.ResourcePacket packet, ByteBuffer bitmap, int chunkCount) {
+        BitSet selected;
+        if (bitmap.hasRemaining()) {
+            selected = BitSet.valueOf(bitmap);
+        } else {
+            int from = Math.max(0, packet.chunkIndex());
+            int count = packet.chunkCount() > 0 ? packet.chunkCount() : chunkCount;
+            selected = new BitSet(chunkCount);
+            selected.set(Math.min(from, chunkCount), (int) Math.min((long) from + count, chunkCount));
+        }
+        if (selected.length() > chunkCount) {
+            selected.clear(chunkCount, selected.length());
+        }
+        return selected;
+    }
+
+    private void beginResourceUpload(Player sender, BukkitResourceTransferCodec.ResourcePacket packet, ByteBuffer payload) throws IOException {
         Path target = resolveResourceFile(packet.zone(), packet.folderName(), packet.relativePath());
         if (target == null) {
             sendResourceAbort(sender, packet.transferId(), "invalid_target");
@@ -699,113 +1107,363 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
             return;
         }
 
-        ResourceUploadSession old = resourceUploadSessions.remove(transferId);
+        boolean contentDefined = BukkitResourceTransferCodec.hasCapability(packet.message(), BukkitResourceTransferCodec.CONTENT_CHUNKS);
+        if (contentDefined && packet.chunkIndex() > 0) {
+            appendUploadLayout(sender, transferId, packet, payload, target);
+            return;
+        }
+
+        if (!ResourceUploadSession.isValidDigest(packet.digest())) {
+            sendResourceAbort(sender, transferId, "digest_required");
+            return;
+        }
+        if (packet.totalSize() < 0L) {
+            sendResourceAbort(sender, transferId, "size_required");
+            return;
+        }
+
+        ResourceUploadSession old = resourceUploadSessions.get(transferId);
+        if (old != null
+                && BukkitResourceTransferCodec.hasCapability(packet.message(), UPLOAD_RESUME)
+                && old.isLayoutComplete()
+                && old.matches(sender.getUniqueId(), packet.zone(), packet.folderName(), packet.relativePath())) {
+            sendUploadProgress(sender, transferId, "upload_resume", old);
+            return;
+        }
+        if (old != null && !old.playerUuid().equals(sender.getUniqueId())) {
+            sendResourceAbort(sender, transferId, "upload_in_progress");
+            return;
+        }
         if (old != null) {
-            Files.deleteIfExists(old.tempFile);
+            resourceUploadSessions.remove(transferId, old);
+            old.discard();
+        }
+        if (dedupUploads.containsKey(transferId)) {
+            sendResourceAbort(sender, transferId, "upload_in_progress");
+            return;
+        }
+        if (!uploadQuota.allowsFile(packet.totalSize())) {
+            sendResourceAbort(sender, transferId, "upload_too_large");
+            return;
+        }
+        int maxSessions = maxUploadSessionsPerPlayer;
+        if (maxSessions > 0 && countUploadSessions(sender.getUniqueId()) >= maxSessions) {
+            sendResourceAbort(sender, transferId, "upload_too_many_sessions");
+            return;
+        }
+        if (BukkitResourceTransferCodec.hasCapability(packet.message(), UPLOAD_DEDUP)) {
+            ResourceContentStore.Location location = locateContent(packet.digest(), packet.totalSize());
+            if (location != null) {
+                if (dedupUploads.putIfAbsent(transferId, sender.getUniqueId()) != null) {
+                    sendResourceAbort(sender, transferId, "upload_in_progress");
+                    return;
+                }
+                if (!uploadQuota.tryReserve(sender.getUniqueId(), location.size())) {
+                    dedupUploads.remove(transferId);
+                    sendResourceAbort(sender, transferId, "upload_quota_exceeded");
+                    return;
+                }
+                Path source = resolveResourceFile(location.zone(), location.folderName(), location.relativePath());
+                if (!transferEngine.submit(sender.getUniqueId(),
+                        () -> materializeUpload(sender, transferId, packet.zone(), source, target, location.size()))) {
+                    uploadQuota.release(sender.getUniqueId(), location.size());
+                    dedupUploads.remove(transferId);
+                    sendResourceAbort(sender, transferId, "server_busy");
+                }
+                return;
+            }
         }
 
-        Path stagingDir = getDataFolder().toPath().resolve("resource-upload-staging");
-        Files.createDirectories(stagingDir);
-        Path tempFile = stagingDir.resolve(transferId + ".part");
+        Path tempFile = uploadStagingDir().resolve(transferId + ".part");
+        Files.createDirectories(tempFile.getParent());
         Files.deleteIfExists(tempFile);
-        resourceUploadSessions.put(transferId, new ResourceUploadSession(
+        ResourceUploadSession session = new ResourceUploadSession(
                 sender.getUniqueId(),
                 packet.zone(),
                 packet.folderName(),
                 packet.relativePath(),
-                tempFile
-        ));
+                tempFile,
+                packet.chunkCount(),
+                RESOURCE_CHUNK_SIZE,
+                packet.totalSize(),
+                packet.digest(),
+                uploadQuota,
+                contentDefined
+        );
+        if (!session.reserve(packet.totalSize())) {
+            sendResourceAbort(sender, transferId, "upload_quota_exceeded");
+            return;
+        }
+        resourceUploadSessions.put(transferId, session);
+        if (contentDefined) {
+            appendUploadLayout(sender, transferId, packet, payload, target);
+            return;
+        }
         sendResourceAck(sender, transferId, "upload_begin_ok");
     }
 
-    private void appendResourceUploadChunk(Player sender, BukkitResourceTransferCodec.ResourcePacket packet) throws IOException {
+    private void appendUploadLayout(Player sender, String transferId, BukkitResourceTransferCodec.ResourcePacket packet,
+                                    ByteBuffer payload, Path target) throws IOException {
+        ResourceUploadSession session = resourceUploadSessions.get(transferId);
+        if (session == null || !session.playerUuid().equals(sender.getUniqueId()) || !session.isContentDefined()) {
+            sendResourceAbort(sender, transferId, "upload_session_missing");
+            return;
+        }
+        byte[] page = new byte[payload.remaining()];
+        payload.get(page);
+        String rejection = uploadRejection(session.appendLayout(packet.chunkIndex(), packet.chunkCount(), page));
+        if (rejection != null) {
+            abortResourceUpload(sender.getUniqueId(), transferId);
+            sendResourceAbort(sender, transferId, rejection);
+            return;
+        }
+        if (!session.isLayoutComplete()) {
+            sendResourceAck(sender, transferId, "upload_layout_page");
+            return;
+        }
+        if (!transferEngine.submit(sender.getUniqueId(), () -> seedUploadSession(sender, transferId, session, target))) {
+            abortResourceUpload(sender.getUniqueId(), transferId);
+            sendResourceAbort(sender, transferId, "server_busy");
+        }
+    }
+
+    private void seedUploadSession(Player sender, String transferId, ResourceUploadSession session, Path target) {
+        try {
+            if (Files.isRegularFile(target)) {
+                BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+                String chunkKey = contentChunkKey(contentDigest(session.zone(), target, attributes), target, attributes);
+                List<ContentDefinedChunker.Chunk> existing = contentChunks.chunks(chunkKey, target);
+                try (TransferPayload source = TransferPayload.open(target)) {
+                    session.seed(source, existing);
+                }
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "复用已有资源分块失败: " + target, e);
+        }
+        try {
+            sendUploadProgress(sender, transferId, "upload_begin_cdc", session);
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "发送上传进度失败: " + transferId, e);
+        }
+    }
+
+    private static String uploadRejection(ResourceUploadSession.WriteResult result) {
+        return switch (result) {
+            case INVALID -> "invalid_chunk";
+            case TOO_LARGE -> "upload_too_large";
+            case QUOTA_EXCEEDED -> "upload_quota_exceeded";
+            default -> null;
+        };
+    }
+
+    private void appendResourceUploadChunk(Player sender, BukkitResourceTransferCodec.ResourcePacket packet, ByteBuffer payload) throws IOException {
         ResourceUploadSession session = resourceUploadSessions.get(packet.transferId());
-        if (session == null || !session.playerUuid.equals(sender.getUniqueId())) {
+        if (session == null || !session.playerUuid().equals(sender.getUniqueId())) {
             sendResourceAbort(sender, packet.transferId(), "upload_session_missing");
             return;
         }
 
-        Files.createDirectories(session.tempFile.getParent());
-        Files.write(session.tempFile, packet.payload(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        if (packet.chunkIndex() + 1 >= packet.chunkCount()) {
-            sendResourceAck(sender, packet.transferId(), "upload_chunks_received");
+        ResourceUploadSession.WriteResult result = session.write(packet.chunkIndex(), packet.chunkCount(), payload);
+        if (result == ResourceUploadSession.WriteResult.RATE_LIMITED) {
+            sendUploadProgress(sender, packet.transferId(), "upload_rate_limited", session);
+            return;
+        }
+        String rejection = uploadRejection(result);
+        if (rejection != null) {
+            abortResourceUpload(sender.getUniqueId(), packet.transferId());
+            sendResourceAbort(sender, packet.transferId(), rejection);
+            return;
+        }
+        if (result == ResourceUploadSession.WriteResult.WRITTEN
+                && (packet.chunkIndex() + 1 >= packet.chunkCount() || session.isContentDefined() && session.isComplete())) {
+            if (session.isComplete()) {
+                sendResourceAck(sender, packet.transferId(), "upload_chunks_received");
+            } else {
+                sendUploadProgress(sender, packet.transferId(), "upload_chunks_missing", session);
+            }
         }
     }
 
+    private void sendUploadProgress(Player player, String transferId, String message, ResourceUploadSession session) throws IOException {
+        sendResourcePacket(player, new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.ACK,
+                transferId,
+                buildStableServerId(),
+                session.zone(),
+                session.folderName(),
+                session.relativePath(),
+                0,
+                session.chunkCount(),
+                0L,
+                "",
+                session.missingChunks().toByteArray(),
+                List.of(),
+                message
+        ));
+    }
+
     private void finishResourceUpload(Player sender, String transferId) throws IOException {
-        ResourceUploadSession session = resourceUploadSessions.remove(transferId);
-        if (session == null || !session.playerUuid.equals(sender.getUniqueId())) {
+        ResourceUploadSession session = resourceUploadSessions.get(transferId);
+        if (session == null || !session.playerUuid().equals(sender.getUniqueId())) {
             sendResourceAbort(sender, transferId, "upload_session_missing");
             return;
         }
+        if (!session.isComplete()) {
+            sendUploadProgress(sender, transferId, "upload_chunks_missing", session);
+            return;
+        }
+        resourceUploadSessions.remove(transferId, session);
 
-        Path target = resolveResourceFile(session.zone, session.folderName, session.relativePath);
+        Path target = resolveResourceFile(session.zone(), session.folderName(), session.relativePath());
         if (target == null) {
-            Files.deleteIfExists(session.tempFile);
+            session.discard();
             sendResourceAbort(sender, transferId, "invalid_target");
             return;
         }
+        String failure = session.verify();
+        if (failure != null) {
+            session.discard();
+            sendResourceAbort(sender, transferId, failure);
+            return;
+        }
 
+        session.complete();
         Files.createDirectories(target.getParent());
-        Files.move(session.tempFile, target, StandardCopyOption.REPLACE_EXISTING);
-        Path zoneRoot = resolveZoneRoot(session.zone);
+        Files.move(session.tempFile(), target, StandardCopyOption.REPLACE_EXISTING);
+        Path zoneRoot = resolveZoneRoot(session.zone());
         if (zoneRoot != null) {
-            invalidateCacheUnder(zoneRoot);
+            manifestIndex.refreshFile(session.zone(), zoneRoot, target);
         }
         sendResourceAck(sender, transferId, "upload_finish_ok");
     }
 
-    private void abortResourceUpload(String transferId) {
-        ResourceUploadSession session = resourceUploadSessions.remove(transferId);
-        if (session == null) {
-            return;
-        }
+    private void materializeUpload(Player sender, String transferId, String zone, Path source, Path target, long reserved) {
         try {
-            Files.deleteIfExists(session.tempFile);
-        } catch (IOException ignored) {
+            if (!source.equals(target)) {
+                Path tempFile = uploadStagingDir().resolve(transferId + ".part");
+                Files.createDirectories(tempFile.getParent());
+                Files.copy(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.createDirectories(target.getParent());
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Path zoneRoot = resolveZoneRoot(zone);
+            if (zoneRoot != null) {
+                manifestIndex.refreshFile(zone, zoneRoot, target);
+            }
+            sendResourceAck(sender, transferId, "upload_dedup");
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "复用已有资源内容失败: " + target, e);
+            sendResourceAbort(sender, transferId, "server_error:" + e.getClass().getSimpleName());
+        } finally {
+            uploadQuota.release(sender.getUniqueId(), reserved);
+            dedupUploads.remove(transferId);
         }
     }
 
-    private List<BukkitResourceTransferCodec.ManifestEntry> buildResourceManifestEntries() {
-        List<BukkitResourceTransferCodec.ManifestEntry> entries = new ArrayList<>();
-        appendResourceManifestEntries(entries, "pmx", resolveZoneRoot("pmx"));
-        appendResourceManifestEntries(entries, "vmd", resolveZoneRoot("vmd"));
-        return entries;
+    private ResourceContentStore.Location locateContent(String sha256, long size) {
+        if (sha256 == null || sha256.length() != 64) {
+            return null;
+        }
+        for (ResourceContentStore.Location location : manifestIndex.contents().locate(sha256.toLowerCase(Locale.ROOT))) {
+            if (size >= 0L && location.size() != size) {
+                continue;
+            }
+            Path file = resolveResourceFile(location.zone(), location.folderName(), location.relativePath());
+            if (file == null) {
+                continue;
+            }
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile()
+                        && attributes.size() == location.size()
+                        && attributes.lastModifiedTime().toMillis() == location.lastModified()) {
+                    return location;
+                }
+            } catch (IOException ignored) {
+            }
+        }
+        return null;
     }
 
-    private void appendResourceManifestEntries(List<BukkitResourceTransferCodec.ManifestEntry> entries, String zone, Path zoneRoot) {
-        if (zoneRoot == null || !Files.isDirectory(zoneRoot)) {
-            return;
+    private String contentDigest(String zone, Path file, BasicFileAttributes attributes) {
+        Path zoneRoot = resolveZoneRoot(zone);
+        if (zoneRoot == null) {
+            return null;
+        }
+        String relative = zoneRoot.normalize().relativize(file.normalize()).toString().replace('\\', '/');
+        int slash = relative.indexOf('/');
+        if (slash <= 0) {
+            return null;
+        }
+        return manifestIndex.contents().digestOf(zone, relative.substring(0, slash), relative.substring(slash + 1),
+                attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    private void abortResourceUpload(UUID owner, String transferId) {
+        ResourceUploadSession session = resourceUploadSessions.get(transferId);
+        if (session != null && session.playerUuid().equals(owner) && resourceUploadSessions.remove(transferId, session)) {
+            session.discard();
+        }
+    }
+
+    private int countUploadSessions(UUID player) {
+        int count = 0;
+        for (ResourceUploadSession session : resourceUploadSessions.values()) {
+            if (session.playerUuid().equals(player)) {
+                count++;
+            }
+        }
+        for (UUID owner : dedupUploads.values()) {
+            if (owner.equals(player)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Path uploadStagingDir() {
+        return getDataFolder().toPath().resolve("resource-upload-staging");
+    }
+
+    private void reapStaleUploads() {
+        uploadQuota.pruneIdleBuckets();
+        long cutoff = System.currentTimeMillis() - uploadStaleMillis;
+        Set<Path> active = new HashSet<>();
+        for (Map.Entry<String, ResourceUploadSession> entry : resourceUploadSessions.entrySet()) {
+            ResourceUploadSession session = entry.getValue();
+            if (session.lastActivity() < cutoff && resourceUploadSessions.remove(entry.getKey(), session)) {
+                session.discard();
+            } else {
+                active.add(session.tempFile());
+            }
+        }
+        Path stagingRoot = uploadStagingDir();
+        for (String transferId : dedupUploads.keySet()) {
+            active.add(stagingRoot.resolve(transferId + ".part"));
         }
 
-        try (Stream<Path> stream = Files.walk(zoneRoot)) {
-            stream.filter(Files::isRegularFile)
-                    .sorted()
-                    .forEach(path -> {
-                        try {
-                            String relative = zoneRoot.relativize(path).toString().replace('\\', '/');
-                            String[] parts = relative.split("/", 2);
-                            if (parts.length < 2) {
-                                return;
-                            }
-                            byte[] rawData = Files.readAllBytes(path);
-                            byte[] payload = prepareTransferPayload(rawData, parts[1]);
-                            entries.add(new BukkitResourceTransferCodec.ManifestEntry(
-                                    zone,
-                                    parts[0],
-                                    parts[1],
-                                    rawData.length,
-                                    md5Hex(rawData)
-                            ));
-                        } catch (Exception e) {
-                            getLogger().log(Level.WARNING, "构建资源清单时跳过文件: " + path, e);
-                        }
-                    });
+        Path stagingDir = uploadStagingDir();
+        if (!Files.isDirectory(stagingDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(stagingDir, "*.part")) {
+            for (Path file : files) {
+                if (!active.contains(file) && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                }
+            }
         } catch (IOException e) {
-            getLogger().log(Level.WARNING, "扫描资源清单失败: " + zoneRoot, e);
+            getLogger().log(Level.WARNING, "清理过期上传暂存文件失败", e);
         }
     }
 
+    private Map<String, Path> resolveZoneRoots() {
+        Map<String, Path> zoneRoots = new LinkedHashMap<>();
+        zoneRoots.put("pmx", resolveZoneRoot("pmx"));
+        zoneRoots.put("vmd", resolveZoneRoot("vmd"));
+        return zoneRoots;
+    }
+
     private Path resolveZoneRoot(String zone) {
         if (modelDir == null || zone == null) {
             return null;
@@ -851,11 +1509,11 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
     }
 
     private void sendResourcePacket(Player player, BukkitResourceTransferCodec.ResourcePacket packet) throws IOException {
-        if (player == null || !player.isOnline()) {
+        if (player == null) {
             return;
         }
         byte[] encoded = BukkitResourceTransferCodec.encode(packet);
-        player.sendPluginMessage(this, CHANNEL_MMDSYNC_RESOURCE, encoded);
+        transferEngine.dispatch(player.getUniqueId(), CHANNEL_MMDSYNC_RESOURCE, encoded);
     }
 
     private void sendResourceAck(Player player, String transferId, String message) throws IOException {
@@ -898,49 +1556,30 @@ public class MmdSkinBukkit extends JavaPlugin implements PluginMessageListener,
         }
     }
 
-    private byte[] prepareTransferPayload(byte[] data, String relativePath) {
-        String lower = relativePath == null ? "" : relativePath.toLowerCase(Locale.ROOT);
-        if (serverSyncKey == null || !shouldEncryptTransferredFile(lower) || isEncryptedArchive(data)) {
-            return data;
-        }
-
-        byte[] encrypted = MMDSyncNativeBridge.aesEncrypt(data, serverSyncKey);
-        if (encrypted == null) {
-            return data;
+    private TransferPayload openPreparedPayload(String zone, Path file, BasicFileAttributes attributes, String relativePath,
+                                                boolean archived, boolean gzip) throws IOException {
+        boolean encrypt = !archived && serverSyncKey != null && TransferPayloadPreparer.shouldEncrypt(relativePath);
+        if (!encrypt && !gzip) {
+            return TransferPayload.open(file);
         }
-
-        byte[] result = new byte[MMDARC_HEADER.length + 1 + encrypted.length];
-        System.arraycopy(MMDARC_HEADER, 0, result, 0, MMDARC_HEADER.length);
-        result[MMDARC_HEADER.length] = MMDARC_VERSION;
-        System.arraycopy(encrypted, 0, result, MMDARC_HEADER.length + 1, encrypted.length);
-        return result;
-    }
-
-    private boolean shouldEncryptTransferredFile(String lowerName) {
-        return lowerName.endsWith(".pmx") || lowerName.endsWith(".pmd") || lowerName.endsWith(".vrm")
-                || lowerName.endsWith(".vmd") || lowerName.endsWith(".fbx")
-                || lowerName.endsWith(".png") || lowerName.endsWith(".jpg")
-                || lowerName.endsWith(".jpeg") || lowerName.endsWith(".tga");
-    }
-
-    private boolean isEncryptedArchive(byte[] data) {
-        return data.length >= 7
-                && data[0] == 'M' && data[1] == 'M' && data[2] == 'D'
-                && data[3] == 'A' && data[4] == 'R' && data[5] == 'C';
+        String keyFingerprint = encrypt ? serverSyncKeyFingerprint : "";
+        String encoding = gzip ? BukkitResourceTransferCodec.ENCODING_GZIP : "";
+        PreparedPayloadCache.Key key = preparedPayloadKey(zone, file, attributes, keyFingerprint, encoding);
+        return payloadCache.open(key, () -> payloadPreparer.prepare(file, relativePath, gzip, serverSyncKey));
     }
 
-    private String md5Hex(byte[] data) throws IOException {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            digest.update(data);
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest.digest()) {
-                sb.append(String.format(Locale.ROOT, "%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            throw new IOException("计算 MD5 失败", e);
-        }
+    private PreparedPayloadCache.Key preparedPayloadKey(String zone, Path file, BasicFileAttributes attributes,
+                                                        String keyFingerprint, String encoding) {
+        String sha256 = contentDigest(zone, file, attributes);
+        return sha256 != null
+                ? PreparedPayloadCache.Key.forContent(sha256, attributes.size(), keyFingerprint, encoding)
+                : new PreparedPayloadCache.Key(
+                        file.toAbsolutePath().normalize().toString(),
+                        attributes.size(),
+                        attributes.lastModifiedTime().toMillis(),
+                        keyFingerprint,
+                        encoding
+                );
     }
 
     private void sendAllModelsToPlayer(Player player) {
@@ -1,13 +1,15 @@
 package com.opdent.mmdskin.bukkit.resource;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class BukkitResourceTransferCodec {
     public static final int MANIFEST = 1;
@@ -18,6 +20,40 @@ public final class BukkitResourceTransferCodec {
     public static final int UPLOAD_FINISH = 6;
     public static final int ABORT = 7;
     public static final int ACK = 8;
+    public static final int MANIFEST_DELTA = 9;
+    public static final int MERKLE_QUERY = 10;
+    public static final int MERKLE_NODE = 11;
+    public static final int CHUNK_LIST = 12;
+
+    public static final String ENCODING_GZIP = "gzip";
+
+    public static final int PROTOCOL_VERSION = 9;
+    public static final int PROTOCOL_BINARY_MANIFEST = 2;
+    public static final int PROTOCOL_PAGED_MANIFEST = 3;
+    public static final int PROTOCOL_MANIFEST_DELTA = 4;
+    public static final int PROTOCOL_MERKLE = 5;
+    public static final int PROTOCOL_RESUMABLE_CHUNKS = 6;
+    public static final int PROTOCOL_CONTENT_ADDRESSED = 7;
+    public static final int PROTOCOL_CONTENT_CHUNKS = 8;
+    public static final int PROTOCOL_SEGMENTED_ARCHIVE = 9;
+    public static final String CONTENT_CHUNKS = "cdc";
+    public static final String MANIFEST_JSON = "manifest";
+    public static final String MANIFEST_BINARY = "manifest-bin";
+    public static final String MANIFEST_RESET = "manifest-reset";
+    public static final String MANIFEST_ACK = "manifest_ack";
+    public static final String MERKLE_MATCH = "merkle-match";
+    public static final String MERKLE_CHILDREN = "merkle-children";
+
+    private static final String PROTOCOL_TOKEN = "proto=";
+    private static final String SINCE_TOKEN = "since=";
+    private static final String TAG_TOKEN = "tag=";
+    private static final int MANIFEST_BINARY_FORMAT = 1;
+    private static final int MAX_DIGEST_WIDTH = 64;
+    private static final int MERKLE_CHILDREN_FORMAT = 1;
+    private static final int MERKLE_HASH_WIDTH = 32;
+    private static final int CHUNK_LIST_FORMAT = 1;
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final String EMPTY_MANIFEST_JSON = "[]";
 
     private BukkitResourceTransferCodec() {
     }
@@ -42,48 +78,156 @@ public final class BukkitResourceTransferCodec {
     ) {
     }
 
+    public static boolean hasCapability(String message, String capability) {
+        if (message == null || message.isEmpty()) {
+            return false;
+        }
+        for (String token : message.split(",")) {
+            if (token.trim().equalsIgnoreCase(capability)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int protocolVersion(String message) {
+        return (int) tokenValue(message, PROTOCOL_TOKEN, 1L);
+    }
+
+    public static long manifestSince(String message) {
+        return tokenValue(message, SINCE_TOKEN, -1L);
+    }
+
+    public static String payloadTag(String message) {
+        if (message == null || message.isEmpty()) {
+            return "";
+        }
+        for (String token : message.split(",")) {
+            String trimmed = token.trim();
+            if (trimmed.startsWith(TAG_TOKEN)) {
+                return trimmed.substring(TAG_TOKEN.length());
+            }
+        }
+        return "";
+    }
+
+    public static String withPayloadTag(String message, String tag) {
+        String token = TAG_TOKEN + tag;
+        return message == null || message.isEmpty() ? token : message + "," + token;
+    }
+
+    public static long manifestVersion(String digest) {
+        try {
+            return digest == null || digest.isEmpty() ? -1L : Long.parseLong(digest);
+        } catch (NumberFormatException ignored) {
+            return -1L;
+        }
+    }
+
+    private static long tokenValue(String message, String prefix, long fallback) {
+        if (message == null || message.isEmpty()) {
+            return fallback;
+        }
+        for (String token : message.split(",")) {
+            String trimmed = token.trim();
+            if (trimmed.startsWith(prefix)) {
+                try {
+                    return Long.parseLong(trimmed.substring(prefix.length()));
+                } catch (NumberFormatException ignored) {
+                    return fallback;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    public record PacketView(ResourcePacket packet, ByteBuffer payload) {
+    }
+
     public static byte[] encode(ResourcePacket packet) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(baos);
+        String manifestJson = encodeManifestEntries(packet.manifestEntries());
+        byte[] payload = packet.payload() == null ? EMPTY_BYTES : packet.payload();
+        int size = 4
+                + stringSize(packet.transferId())
+                + stringSize(packet.serverId())
+                + stringSize(packet.zone())
+                + stringSize(packet.folderName())
+                + stringSize(packet.relativePath())
+                + 4
+                + 4
+                + varLongSize(packet.totalSize())
+                + stringSize(packet.digest())
+                + varIntSize(payload.length) + payload.length
+                + stringSize(manifestJson)
+                + stringSize(packet.message());
+
+        Writer out = new Writer(size);
         out.writeInt(packet.opCode());
-        writeString(out, packet.transferId());
-        writeString(out, packet.serverId());
-        writeString(out, packet.zone());
-        writeString(out, packet.folderName());
-        writeString(out, packet.relativePath());
+        out.writeString(packet.transferId());
+        out.writeString(packet.serverId());
+        out.writeString(packet.zone());
+        out.writeString(packet.folderName());
+        out.writeString(packet.relativePath());
         out.writeInt(packet.chunkIndex());
         out.writeInt(packet.chunkCount());
-        writeVarLong(out, packet.totalSize());
-        writeString(out, packet.digest());
-        writeBytes(out, packet.payload());
-
-        String manifestJson = encodeManifestEntries(packet.manifestEntries());
-        writeString(out, manifestJson);
-        writeString(out, packet.message());
-
-        out.flush();
-        return baos.toByteArray();
+        out.writeVarLong(packet.totalSize());
+        out.writeString(packet.digest());
+        out.writeVarInt(payload.length);
+        out.writeBytes(payload);
+        out.writeString(manifestJson);
+        out.writeString(packet.message());
+        return out.finish();
     }
 
     public static ResourcePacket decode(byte[] data) throws IOException {
-        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        PacketView view = decodeView(data);
+        ByteBuffer slice = view.payload();
+        if (!slice.hasRemaining()) {
+            return view.packet();
+        }
+        byte[] payload = new byte[slice.remaining()];
+        slice.duplicate().get(payload);
+        ResourcePacket packet = view.packet();
+        return new ResourcePacket(
+                packet.opCode(),
+                packet.transferId(),
+                packet.serverId(),
+                packet.zone(),
+                packet.folderName(),
+                packet.relativePath(),
+                packet.chunkIndex(),
+                packet.chunkCount(),
+                packet.totalSize(),
+                packet.digest(),
+                payload,
+                packet.manifestEntries(),
+                packet.message()
+        );
+    }
+
+    public static PacketView decodeView(byte[] data) throws IOException {
+        Reader in = new Reader(data, 0, data.length);
         int opCode = in.readInt();
-        String transferId = readString(in);
-        String serverId = readString(in);
-        String zone = readString(in);
-        String folderName = readString(in);
-        String relativePath = readString(in);
+        String transferId = in.readString();
+        String serverId = in.readString();
+        String zone = in.readString();
+        String folderName = in.readString();
+        String relativePath = in.readString();
         int chunkIndex = in.readInt();
         int chunkCount = in.readInt();
-        long totalSize = readVarLong(in);
-        String digest = readString(in);
-        byte[] payload = readBytes(in);
+        long totalSize = in.readVarLong();
+        String digest = in.readString();
+        int payloadLength = Math.max(0, in.readVarInt());
+        int payloadOffset = in.skip(payloadLength);
 
-        String manifestJson = readString(in);
+        String manifestJson = in.readString();
         List<ManifestEntry> entries = decodeManifestEntries(manifestJson);
-        String message = readString(in);
+        String message = in.readString();
+        if ((opCode == MANIFEST || opCode == MANIFEST_DELTA || opCode == MERKLE_NODE) && MANIFEST_BINARY.equals(message)) {
+            entries = decodeManifestBinary(data, payloadOffset, payloadLength);
+        }
 
-        return new ResourcePacket(
+        ResourcePacket packet = new ResourcePacket(
                 opCode,
                 transferId,
                 serverId,
@@ -94,101 +238,455 @@ public final class BukkitResourceTransferCodec {
                 chunkCount,
                 totalSize,
                 digest,
-                payload,
+                EMPTY_BYTES,
                 entries,
                 message
         );
+        return new PacketView(packet, ByteBuffer.wrap(data, payloadOffset, payloadLength).slice().asReadOnlyBuffer());
+    }
+
+    public static byte[] encodeManifestBinary(List<ManifestEntry> entries) {
+        List<ManifestEntry> list = entries == null ? List.of() : entries;
+        Map<String, Integer> zoneIds = new HashMap<>();
+        Map<String, Integer> folderIds = new HashMap<>();
+        List<String> zones = new ArrayList<>();
+        List<String> folders = new ArrayList<>();
+        int digestWidth = 0;
+        for (ManifestEntry entry : list) {
+            intern(zoneIds, zones, entry.zone());
+            intern(folderIds, folders, entry.folderName());
+            digestWidth = Math.max(digestWidth, hexDigestWidth(entry.sha256()));
+        }
+
+        int size = 1 + varIntSize(zones.size()) + varIntSize(folders.size()) + varIntSize(digestWidth) + varIntSize(list.size());
+        for (String zone : zones) {
+            size += stringSize(zone);
+        }
+        for (String folder : folders) {
+            size += stringSize(folder);
+        }
+        for (ManifestEntry entry : list) {
+            size += varIntSize(zoneIds.get(nullToEmpty(entry.zone())))
+                    + varIntSize(folderIds.get(nullToEmpty(entry.folderName())))
+                    + stringSize(entry.relativePath())
+                    + varLongSize(entry.size())
+                    + digestWidth;
+        }
+
+        Writer out = new Writer(size);
+        out.writeByte(MANIFEST_BINARY_FORMAT);
+        out.writeVarInt(zones.size());
+        for (String zone : zones) {
+            out.writeString(zone);
+        }
+        out.writeVarInt(folders.size());
+        for (String folder : folders) {
+            out.writeString(folder);
+        }
+        out.writeVarInt(digestWidth);
+        out.writeVarInt(list.size());
+        for (ManifestEntry entry : list) {
+            out.writeVarInt(zoneIds.get(nullToEmpty(entry.zone())));
+            out.writeVarInt(folderIds.get(nullToEmpty(entry.folderName())));
+            out.writeString(entry.relativePath());
+            out.writeVarLong(entry.size());
+            out.writeHexDigest(entry.sha256(), digestWidth);
+        }
+        return out.finish();
     }
 
-    private static void writeString(DataOutputStream out, String value) throws IOException {
-        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
-        writeVarInt(out, bytes.length);
-        out.write(bytes);
+    public static List<ManifestEntry> decodeManifestBinary(byte[] data) throws IOException {
+        return data == null ? new ArrayList<>() : decodeManifestBinary(data, 0, data.length);
     }
 
-    private static String readString(DataInputStream in) throws IOException {
-        int length = readVarInt(in);
-        if (length <= 0) {
-            return "";
+    private static List<ManifestEntry> decodeManifestBinary(byte[] data, int offset, int length) throws IOException {
+        if (length == 0) {
+            return new ArrayList<>();
+        }
+        Reader in = new Reader(data, offset, length);
+        int format = in.readUnsignedByte();
+        if (format != MANIFEST_BINARY_FORMAT) {
+            throw new IOException("Unsupported binary manifest format: " + format);
+        }
+        String[] zones = new String[in.readCount()];
+        for (int i = 0; i < zones.length; i++) {
+            zones[i] = in.readString();
         }
-        byte[] bytes = in.readNBytes(length);
-        return new String(bytes, StandardCharsets.UTF_8);
+        String[] folders = new String[in.readCount()];
+        for (int i = 0; i < folders.length; i++) {
+            folders[i] = in.readString();
+        }
+        int digestWidth = in.readVarInt();
+        if (digestWidth < 0 || digestWidth > MAX_DIGEST_WIDTH) {
+            throw new IOException("Invalid manifest digest width: " + digestWidth);
+        }
+        int count = in.readCount();
+        List<ManifestEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int zoneId = in.readVarInt();
+            int folderId = in.readVarInt();
+            if (zoneId < 0 || zoneId >= zones.length || folderId < 0 || folderId >= folders.length) {
+                throw new IOException("Manifest name index out of range");
+            }
+            String relativePath = in.readString();
+            long size = in.readVarLong();
+            String digest = in.readHexDigest(digestWidth);
+            entries.add(new ManifestEntry(zones[zoneId], folders[folderId], relativePath, size, digest));
+        }
+        return entries;
     }
 
-    private static void writeBytes(DataOutputStream out, byte[] payload) throws IOException {
-        if (payload == null || payload.length == 0) {
-            writeVarInt(out, 0);
-            return;
+    public static byte[] encodeMerkleChildren(Map<String, String> children) {
+        int size = 1 + varIntSize(children.size());
+        for (String name : children.keySet()) {
+            size += merkleChildSize(name);
         }
-        writeVarInt(out, payload.length);
-        out.write(payload);
+        Writer out = new Writer(size);
+        out.writeByte(MERKLE_CHILDREN_FORMAT);
+        out.writeVarInt(children.size());
+        for (Map.Entry<String, String> child : children.entrySet()) {
+            out.writeString(child.getKey());
+            out.writeHexDigest(child.getValue(), MERKLE_HASH_WIDTH);
+        }
+        return out.finish();
     }
 
-    private static byte[] readBytes(DataInputStream in) throws IOException {
-        int length = readVarInt(in);
-        if (length <= 0) {
-            return new byte[0];
+    public static Map<String, String> decodeMerkleChildren(byte[] data) throws IOException {
+        Map<String, String> children = new LinkedHashMap<>();
+        if (data == null || data.length == 0) {
+            return children;
+        }
+        Reader in = new Reader(data, 0, data.length);
+        int format = in.readUnsignedByte();
+        if (format != MERKLE_CHILDREN_FORMAT) {
+            throw new IOException("Unsupported merkle children format: " + format);
+        }
+        int count = in.readCount();
+        for (int i = 0; i < count; i++) {
+            String name = in.readString();
+            children.put(name, in.readHexDigest(MERKLE_HASH_WIDTH));
         }
-        return in.readNBytes(length);
+        return children;
     }
 
-    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
-        while (true) {
-            if ((value & ~0x7F) == 0) {
-                out.writeByte(value);
-                return;
+    public static byte[] encodeChunkList(List<ContentDefinedChunker.Chunk> chunks) {
+        int size = 1 + varIntSize(chunks.size());
+        for (ContentDefinedChunker.Chunk chunk : chunks) {
+            size += chunkListEntrySize(chunk);
+        }
+        Writer out = new Writer(size);
+        out.writeByte(CHUNK_LIST_FORMAT);
+        out.writeVarInt(chunks.size());
+        for (ContentDefinedChunker.Chunk chunk : chunks) {
+            out.writeVarInt(chunk.length());
+            out.writeBytes(chunk.digest());
+        }
+        return out.finish();
+    }
+
+    public static List<ContentDefinedChunker.Chunk> decodeChunkList(byte[] data, long baseOffset) throws IOException {
+        List<ContentDefinedChunker.Chunk> chunks = new ArrayList<>();
+        if (data == null || data.length == 0) {
+            return chunks;
+        }
+        Reader in = new Reader(data, 0, data.length);
+        int format = in.readUnsignedByte();
+        if (format != CHUNK_LIST_FORMAT) {
+            throw new IOException("Unsupported chunk list format: " + format);
+        }
+        int count = in.readCount();
+        long offset = baseOffset;
+        for (int i = 0; i < count; i++) {
+            int length = in.readVarInt();
+            if (length <= 0 || length > ContentDefinedChunker.MAX_SIZE) {
+                throw new IOException("Invalid chunk length: " + length);
+            }
+            int digestAt = in.skip(MERKLE_HASH_WIDTH);
+            chunks.add(new ContentDefinedChunker.Chunk(offset, length, Arrays.copyOfRange(data, digestAt, digestAt + MERKLE_HASH_WIDTH)));
+            offset += length;
+        }
+        return chunks;
+    }
+
+    static int chunkListEntrySize(ContentDefinedChunker.Chunk chunk) {
+        return varIntSize(chunk.length()) + MERKLE_HASH_WIDTH;
+    }
+
+    static int merkleChildSize(String name) {
+        return stringSize(name) + MERKLE_HASH_WIDTH;
+    }
+
+    static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
             }
-            out.writeByte((value & 0x7F) | 0x80);
+        }
+        return length;
+    }
+
+    private static int stringSize(String value) {
+        int length = utf8Length(value);
+        return varIntSize(length) + length;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
             value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void intern(Map<String, Integer> ids, List<String> names, String value) {
+        String name = nullToEmpty(value);
+        if (!ids.containsKey(name)) {
+            ids.put(name, names.size());
+            names.add(name);
         }
     }
 
-    private static int readVarInt(DataInputStream in) throws IOException {
-        int numRead = 0;
-        int result = 0;
-        byte read;
-        do {
-            read = in.readByte();
-            int value = (read & 0b01111111);
-            result |= (value << (7 * numRead));
-            numRead++;
-            if (numRead > 5) {
-                throw new IOException("VarInt is too big");
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static int hexDigestWidth(String hex) {
+        if (hex == null || hex.isEmpty() || (hex.length() & 1) != 0) {
+            return 0;
+        }
+        for (int i = 0; i < hex.length(); i++) {
+            if (Character.digit(hex.charAt(i), 16) < 0) {
+                return 0;
             }
-        } while ((read & 0b10000000) != 0);
-        return result;
+        }
+        return Math.min(hex.length() / 2, MAX_DIGEST_WIDTH);
     }
 
-    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
-        while (true) {
-            if ((value & ~0x7FL) == 0) {
-                out.writeByte((int) value);
+    private static final class Writer {
+        private final byte[] buf;
+        private int pos;
+
+        Writer(int size) {
+            this.buf = new byte[size];
+        }
+
+        void writeByte(int value) {
+            buf[pos++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            buf[pos++] = (byte) (value >>> 24);
+            buf[pos++] = (byte) (value >>> 16);
+            buf[pos++] = (byte) (value >>> 8);
+            buf[pos++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) (((int) value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeVarInt(utf8Length(value));
+            if (value == null) {
                 return;
             }
-            out.writeByte(((int) value & 0x7F) | 0x80);
-            value >>>= 7;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buf[pos++] = (byte) '?';
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        void writeHexDigest(String hex, int width) {
+            if (hexDigestWidth(hex) != width) {
+                Arrays.fill(buf, pos, pos + width, (byte) 0);
+                pos += width;
+                return;
+            }
+            for (int i = 0; i < width; i++) {
+                buf[pos++] = (byte) ((Character.digit(hex.charAt(i * 2), 16) << 4) | Character.digit(hex.charAt(i * 2 + 1), 16));
+            }
+        }
+
+        byte[] finish() {
+            if (pos != buf.length) {
+                throw new IllegalStateException("Encoded size mismatch: " + pos + " != " + buf.length);
+            }
+            return buf;
         }
     }
 
-    private static long readVarLong(DataInputStream in) throws IOException {
-        int numRead = 0;
-        long result = 0;
-        byte read;
-        do {
-            read = in.readByte();
-            long value = (read & 0b01111111);
-            result |= (value << (7 * numRead));
-            numRead++;
-            if (numRead > 10) {
-                throw new IOException("VarLong is too big");
+    private static final class Reader {
+        private final byte[] data;
+        private final int limit;
+        private int pos;
+
+        Reader(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.limit = offset + length;
+        }
+
+        private void require(int count) throws EOFException {
+            if (count < 0 || limit - pos < count) {
+                throw new EOFException("Packet truncated at " + pos);
             }
-        } while ((read & 0b10000000) != 0);
-        return result;
+        }
+
+        int readUnsignedByte() throws EOFException {
+            require(1);
+            return data[pos++] & 0xFF;
+        }
+
+        int readInt() throws EOFException {
+            require(4);
+            int value = ((data[pos] & 0xFF) << 24)
+                    | ((data[pos + 1] & 0xFF) << 16)
+                    | ((data[pos + 2] & 0xFF) << 8)
+                    | (data[pos + 3] & 0xFF);
+            pos += 4;
+            return value;
+        }
+
+        int readVarInt() throws IOException {
+            int numRead = 0;
+            int result = 0;
+            int read;
+            do {
+                read = readUnsignedByte();
+                result |= (read & 0x7F) << (7 * numRead);
+                numRead++;
+                if (numRead > 5) {
+                    throw new IOException("VarInt is too big");
+                }
+            } while ((read & 0x80) != 0);
+            return result;
+        }
+
+        int readCount() throws IOException {
+            int count = readVarInt();
+            if (count < 0 || count > limit - pos) {
+                throw new IOException("Invalid element count: " + count);
+            }
+            return count;
+        }
+
+        long readVarLong() throws IOException {
+            int numRead = 0;
+            long result = 0;
+            int read;
+            do {
+                read = readUnsignedByte();
+                result |= (long) (read & 0x7F) << (7 * numRead);
+                numRead++;
+                if (numRead > 10) {
+                    throw new IOException("VarLong is too big");
+                }
+            } while ((read & 0x80) != 0);
+            return result;
+        }
+
+        String readString() throws IOException {
+            int length = readVarInt();
+            if (length <= 0) {
+                return "";
+            }
+            require(length);
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        String readHexDigest(int width) throws EOFException {
+            require(width);
+            boolean empty = true;
+            for (int i = 0; i < width; i++) {
+                if (data[pos + i] != 0) {
+                    empty = false;
+                    break;
+                }
+            }
+            if (empty) {
+                pos += width;
+                return "";
+            }
+            char[] chars = new char[width * 2];
+            for (int i = 0; i < width; i++) {
+                int b = data[pos++];
+                chars[i * 2] = Character.forDigit((b >> 4) & 0xF, 16);
+                chars[i * 2 + 1] = Character.forDigit(b & 0xF, 16);
+            }
+            return new String(chars);
+        }
+
+        int skip(int count) throws EOFException {
+            require(count);
+            int start = pos;
+            pos += count;
+            return start;
+        }
     }
 
     private static String encodeManifestEntries(List<ManifestEntry> entries) {
         if (entries == null || entries.isEmpty()) {
-            return "[]";
+            return EMPTY_MANIFEST_JSON;
         }
         StringBuilder sb = new StringBuilder();
         sb.append('[');
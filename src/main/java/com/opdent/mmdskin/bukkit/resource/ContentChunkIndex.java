@@ -0,0 +1,63 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ContentChunkIndex {
+    private static final long ESTIMATED_CHUNK_BYTES = 96L;
+
+    private final long maxChunks;
+    private final LinkedHashMap<String, List<ContentDefinedChunker.Chunk>> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private final SingleFlight<String, List<ContentDefinedChunker.Chunk>> splitting = new SingleFlight<>();
+    private long cachedChunks;
+
+    public ContentChunkIndex(long maxBytes) {
+        this.maxChunks = Math.max(0L, maxBytes / ESTIMATED_CHUNK_BYTES);
+    }
+
+    public List<ContentDefinedChunker.Chunk> chunks(String key, Path file) throws IOException {
+        List<ContentDefinedChunker.Chunk> cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return splitting.run(key, () -> {
+            List<ContentDefinedChunker.Chunk> raced = get(key);
+            if (raced != null) {
+                return raced;
+            }
+            List<ContentDefinedChunker.Chunk> chunks = List.copyOf(ContentDefinedChunker.split(file));
+            put(key, chunks);
+            return chunks;
+        });
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        cachedChunks = 0L;
+    }
+
+    private synchronized List<ContentDefinedChunker.Chunk> get(String key) {
+        return cache.get(key);
+    }
+
+    private synchronized void put(String key, List<ContentDefinedChunker.Chunk> chunks) {
+        if (chunks.size() > maxChunks) {
+            return;
+        }
+        List<ContentDefinedChunker.Chunk> previous = cache.put(key, chunks);
+        if (previous != null) {
+            cachedChunks -= previous.size();
+        }
+        cachedChunks += chunks.size();
+        Iterator<Map.Entry<String, List<ContentDefinedChunker.Chunk>>> it = cache.entrySet().iterator();
+        while (cachedChunks > maxChunks && it.hasNext()) {
+            Map.Entry<String, List<ContentDefinedChunker.Chunk>> eldest = it.next();
+            cachedChunks -= eldest.getValue().size();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ContentChunkListStream implements ResourceTransferEngine.PacketStream {
+    private static final int PAGE_HEADER_BYTES = 16;
+
+    private final BukkitResourceTransferCodec.ResourcePacket template;
+    private final SingleFlight.Loader<List<ContentDefinedChunker.Chunk>> loader;
+    private final int pageBytes;
+    private List<ContentDefinedChunker.Chunk> chunks;
+    private int[] pageStarts;
+    private int nextPage;
+
+    public ContentChunkListStream(BukkitResourceTransferCodec.ResourcePacket template,
+                                  SingleFlight.Loader<List<ContentDefinedChunker.Chunk>> loader, int pageBytes) {
+        this.template = template;
+        this.loader = loader;
+        this.pageBytes = Math.max(1024, pageBytes);
+    }
+
+    @Override
+    public byte[] next() throws IOException {
+        if (chunks == null) {
+            chunks = loader.load();
+            pageStarts = paginate(chunks, pageBytes);
+        }
+        if (nextPage >= pageStarts.length) {
+            return null;
+        }
+        int from = pageStarts[nextPage];
+        int to = nextPage + 1 < pageStarts.length ? pageStarts[nextPage + 1] : chunks.size();
+        byte[] encoded = BukkitResourceTransferCodec.encode(new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.CHUNK_LIST,
+                template.transferId(),
+                template.serverId(),
+                template.zone(),
+                template.folderName(),
+                template.relativePath(),
+                nextPage,
+                pageStarts.length,
+                template.totalSize(),
+                template.digest(),
+                BukkitResourceTransferCodec.encodeChunkList(chunks.subList(from, to)),
+                List.of(),
+                template.message()
+        ));
+        nextPage++;
+        return encoded;
+    }
+
+    static int[] paginate(List<ContentDefinedChunker.Chunk> chunks, int pageBytes) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int pageSize = PAGE_HEADER_BYTES;
+        for (int i = 0; i < chunks.size(); i++) {
+            int entryBytes = BukkitResourceTransferCodec.chunkListEntrySize(chunks.get(i));
+            if (i > starts.get(starts.size() - 1) && pageSize + entryBytes > pageBytes) {
+                starts.add(i);
+                pageSize = PAGE_HEADER_BYTES;
+            }
+            pageSize += entryBytes;
+        }
+        int[] pageStarts = new int[starts.size()];
+        for (int i = 0; i < pageStarts.length; i++) {
+            pageStarts[i] = starts.get(i);
+        }
+        return pageStarts;
+    }
+
+    @Override
+    public void close() {
+    }
+}
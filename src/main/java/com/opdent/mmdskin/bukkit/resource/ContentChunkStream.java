@@ -0,0 +1,73 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+public final class ContentChunkStream implements ResourceTransferEngine.PacketStream {
+    private final TransferPayload source;
+    private final BukkitResourceTransferCodec.ResourcePacket template;
+    private final SingleFlight.Loader<List<ContentDefinedChunker.Chunk>> loader;
+    private final BitSet selected;
+    private final ChunkEncoder encoder;
+    private List<ContentDefinedChunker.Chunk> chunks;
+    private int nextChunk;
+
+    @FunctionalInterface
+    public interface ChunkEncoder {
+        byte[] encode(byte[] chunk) throws IOException;
+    }
+
+    public ContentChunkStream(TransferPayload source, BukkitResourceTransferCodec.ResourcePacket template,
+                              SingleFlight.Loader<List<ContentDefinedChunker.Chunk>> loader, BitSet selected,
+                              ChunkEncoder encoder) {
+        this.source = source;
+        this.template = template;
+        this.loader = loader;
+        this.selected = selected;
+        this.encoder = encoder;
+    }
+
+    @Override
+    public byte[] next() throws IOException {
+        if (chunks == null) {
+            chunks = loader.load();
+            nextChunk = nextSelected(0);
+        }
+        if (nextChunk < 0 || nextChunk >= chunks.size()) {
+            return null;
+        }
+        ContentDefinedChunker.Chunk chunk = chunks.get(nextChunk);
+        byte[] data = new byte[chunk.length()];
+        source.read(chunk.offset(), data, 0, data.length);
+        byte[] encoded = BukkitResourceTransferCodec.encode(new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.CHUNK,
+                template.transferId(),
+                template.serverId(),
+                template.zone(),
+                template.folderName(),
+                template.relativePath(),
+                nextChunk,
+                chunks.size(),
+                template.totalSize(),
+                chunk.sha256(),
+                encoder.encode(data),
+                List.of(),
+                template.message()
+        ));
+        nextChunk = nextSelected(nextChunk + 1);
+        return encoded;
+    }
+
+    private int nextSelected(int from) {
+        return selected == null ? from : selected.nextSetBit(from);
+    }
+
+    @Override
+    public void close() {
+        try {
+            source.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
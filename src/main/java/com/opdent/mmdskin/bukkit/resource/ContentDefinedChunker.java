@@ -0,0 +1,115 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ContentDefinedChunker {
+    public static final int MIN_SIZE = 4 * 1024;
+    public static final int NORMAL_SIZE = 12 * 1024;
+    public static final int MAX_SIZE = 24 * 1024;
+
+    private static final long GEAR_SEED = 0x4D4D44534B494E00L;
+    private static final long MASK_SMALL = highBits(15);
+    private static final long MASK_LARGE = highBits(11);
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long[] GEAR = gearTable();
+
+    public record Chunk(long offset, int length, byte[] digest) {
+        public long end() {
+            return offset + length;
+        }
+
+        public String sha256() {
+            return ResourceHashing.toHex(digest);
+        }
+
+        public boolean matches(byte[] sha256) {
+            return MessageDigest.isEqual(digest, sha256);
+        }
+    }
+
+    private ContentDefinedChunker() {
+    }
+
+    public static List<Chunk> split(Path file) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        MessageDigest digest = ResourceHashing.newDigest("SHA-256");
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        long offset = 0L;
+        boolean eof = false;
+        try (InputStream in = Files.newInputStream(file)) {
+            while (true) {
+                if (!eof && end - start < MAX_SIZE) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                    while (end < buffer.length) {
+                        int read = in.read(buffer, end, buffer.length - end);
+                        if (read < 0) {
+                            eof = true;
+                            break;
+                        }
+                        end += read;
+                    }
+                }
+                int available = end - start;
+                if (available == 0) {
+                    break;
+                }
+                int length = cut(buffer, start, available);
+                digest.update(buffer, start, length);
+                chunks.add(new Chunk(offset, length, digest.digest()));
+                offset += length;
+                start += length;
+            }
+        }
+        return chunks;
+    }
+
+    static int cut(byte[] data, int from, int available) {
+        if (available <= MIN_SIZE) {
+            return available;
+        }
+        int limit = Math.min(available, MAX_SIZE);
+        int normal = Math.min(limit, NORMAL_SIZE);
+        long hash = 0L;
+        int i = MIN_SIZE;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[from + i] & 0xFF];
+            if ((hash & MASK_SMALL) == 0L) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[from + i] & 0xFF];
+            if ((hash & MASK_LARGE) == 0L) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    private static long highBits(int bits) {
+        return -1L << (Long.SIZE - bits);
+    }
+
+    private static long[] gearTable() {
+        long[] table = new long[256];
+        long state = GEAR_SEED;
+        for (int i = 0; i < table.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            table[i] = z ^ (z >>> 31);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,163 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class FileDigestCache {
+    private static final int CACHE_MAGIC = 0x4D4D4448;
+    private static final int CACHE_VERSION = 1;
+    private static final int IO_BUFFER_SIZE = 256 * 1024;
+
+    private final Path root;
+    private final Path indexFile;
+    private final ResourceHashEngine hashEngine;
+    private final Logger logger;
+    private volatile Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    private volatile boolean changedSinceSave;
+    private final SingleFlight<String, String> hashing = new SingleFlight<>();
+
+    public FileDigestCache(Path root, Path indexFile, ResourceHashEngine hashEngine, Logger logger) {
+        this.root = root.toAbsolutePath().normalize();
+        this.indexFile = indexFile;
+        this.hashEngine = hashEngine;
+        this.logger = logger;
+    }
+
+    private record CacheEntry(long size, long lastModified, long md5High, long md5Low) {
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+
+        String md5() {
+            return HexFormat.of().toHexDigits(md5High) + HexFormat.of().toHexDigits(md5Low);
+        }
+
+        static CacheEntry of(BasicFileAttributes attributes, String md5) {
+            return new CacheEntry(
+                    attributes.size(),
+                    attributes.lastModifiedTime().toMillis(),
+                    HexFormat.fromHexDigitsToLong(md5, 0, 16),
+                    HexFormat.fromHexDigitsToLong(md5, 16, 32)
+            );
+        }
+    }
+
+    public String get(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) return "";
+            String key = keyOf(path);
+            CacheEntry entry = entries.get(key);
+            if (entry != null && entry.matches(attributes)) return entry.md5();
+
+            return hashing.run(key + '\n' + attributes.size() + '\n' + attributes.lastModifiedTime().toMillis(), () -> {
+                String md5 = hashEngine.digest(path).md5();
+                entries.put(key, CacheEntry.of(attributes, md5));
+                changedSinceSave = true;
+                return md5;
+            });
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    public void clear() {
+        changedSinceSave |= !entries.isEmpty();
+        entries.clear();
+    }
+
+    public synchronized void load() {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            if (in.getInt() != CACHE_MAGIC || in.getInt() != CACHE_VERSION) {
+                logger.warning("文件摘要缓存格式不匹配，将重新计算。");
+                return;
+            }
+            int count = in.getInt();
+            Map<String, CacheEntry> loaded = new ConcurrentHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            byte[] key = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int shared = Short.toUnsignedInt(in.getShort());
+                int suffix = Short.toUnsignedInt(in.getShort());
+                if (shared + suffix > key.length) {
+                    key = Arrays.copyOf(key, Math.max(key.length * 2, shared + suffix));
+                }
+                in.get(key, shared, suffix);
+                loaded.put(
+                        new String(key, 0, shared + suffix, StandardCharsets.UTF_8),
+                        new CacheEntry(in.getLong(), in.getLong(), in.getLong(), in.getLong())
+                );
+            }
+            entries = loaded;
+            changedSinceSave = false;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            logger.warning("加载文件摘要缓存失败: " + e.getMessage());
+        }
+    }
+
+    public synchronized void save() {
+        if (!changedSinceSave) {
+            return;
+        }
+        changedSinceSave = false;
+        TreeMap<String, CacheEntry> snapshot = new TreeMap<>(entries);
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), IO_BUFFER_SIZE))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeInt(snapshot.size());
+                byte[] previous = new byte[0];
+                for (Map.Entry<String, CacheEntry> entry : snapshot.entrySet()) {
+                    byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    int mismatch = Arrays.mismatch(previous, key);
+                    int shared = Math.min(mismatch < 0 ? key.length : mismatch, 0xFFFF);
+                    out.writeShort(shared);
+                    out.writeShort(key.length - shared);
+                    out.write(key, shared, key.length - shared);
+                    out.writeLong(entry.getValue().size());
+                    out.writeLong(entry.getValue().lastModified());
+                    out.writeLong(entry.getValue().md5High());
+                    out.writeLong(entry.getValue().md5Low());
+                    previous = key;
+                }
+            }
+            try {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            changedSinceSave = true;
+            logger.log(Level.WARNING, "保存文件摘要缓存失败: " + indexFile, e);
+        }
+    }
+
+    private String keyOf(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        if (normalized.startsWith(root)) {
+            return root.relativize(normalized).toString().replace('\\', '/');
+        }
+        return normalized.toString().replace('\\', '/');
+    }
+}
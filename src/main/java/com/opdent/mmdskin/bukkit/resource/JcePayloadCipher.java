@@ -0,0 +1,92 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+public final class JcePayloadCipher implements StreamingPayloadCipher {
+    public static final int NONCE_BYTES = 12;
+    public static final int TAG_BYTES = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(JcePayloadCipher::newCipher);
+
+    @Override
+    public byte[] encrypt(byte[] data, byte[] key) {
+        try {
+            Cipher cipher = init(key);
+            byte[] result = new byte[NONCE_BYTES + cipher.getOutputSize(data.length)];
+            System.arraycopy(cipher.getIV(), 0, result, 0, NONCE_BYTES);
+            int written = cipher.doFinal(data, 0, data.length, result, NONCE_BYTES);
+            return written + NONCE_BYTES == result.length ? result : Arrays.copyOf(result, NONCE_BYTES + written);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int overhead() {
+        return NONCE_BYTES + TAG_BYTES;
+    }
+
+    @Override
+    public Encryption begin(byte[] key, ByteBuffer output) throws IOException {
+        Cipher cipher;
+        try {
+            cipher = init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("JCE 加密失败: " + e.getMessage(), e);
+        }
+        output.put(cipher.getIV());
+        return new Encryption() {
+            @Override
+            public void update(ByteBuffer input, ByteBuffer output) throws IOException {
+                try {
+                    cipher.update(input, output);
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("JCE 加密失败: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void finish(ByteBuffer output) throws IOException {
+                try {
+                    cipher.doFinal(ByteBuffer.allocate(0), output);
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("JCE 加密失败: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    public byte[] decrypt(byte[] encrypted, byte[] key) throws GeneralSecurityException {
+        if (encrypted.length < NONCE_BYTES + TAG_BYTES) {
+            throw new GeneralSecurityException("密文过短: " + encrypted.length);
+        }
+        Cipher cipher = CIPHERS.get();
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                new GCMParameterSpec(TAG_BYTES * 8, encrypted, 0, NONCE_BYTES));
+        return cipher.doFinal(encrypted, NONCE_BYTES, encrypted.length - NONCE_BYTES);
+    }
+
+    private static Cipher init(byte[] key) throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE_BYTES];
+        RANDOM.nextBytes(nonce);
+        Cipher cipher = CIPHERS.get();
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_BYTES * 8, nonce));
+        return cipher;
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class ManifestMerkleTree {
+    public static final ManifestMerkleTree EMPTY = build(List.of());
+
+    private final byte[] rootHash;
+    private final Map<String, ZoneNode> zones;
+
+    private record ZoneNode(byte[] hash, Map<String, FolderNode> folders) {
+    }
+
+    private record FolderNode(byte[] hash, List<BukkitResourceTransferCodec.ManifestEntry> files) {
+    }
+
+    private ManifestMerkleTree(byte[] rootHash, Map<String, ZoneNode> zones) {
+        this.rootHash = rootHash;
+        this.zones = zones;
+    }
+
+    public static ManifestMerkleTree build(List<BukkitResourceTransferCodec.ManifestEntry> entries) {
+        Map<String, Map<String, List<BukkitResourceTransferCodec.ManifestEntry>>> grouped = new TreeMap<>();
+        for (BukkitResourceTransferCodec.ManifestEntry entry : entries) {
+            grouped.computeIfAbsent(entry.zone(), zone -> new TreeMap<>())
+                    .computeIfAbsent(entry.folderName(), folder -> new ArrayList<>())
+                    .add(entry);
+        }
+
+        MessageDigest digest = newDigest();
+        Map<String, ZoneNode> zones = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, List<BukkitResourceTransferCodec.ManifestEntry>>> zone : grouped.entrySet()) {
+            Map<String, FolderNode> folders = new LinkedHashMap<>();
+            for (Map.Entry<String, List<BukkitResourceTransferCodec.ManifestEntry>> folder : zone.getValue().entrySet()) {
+                folder.getValue().sort(Comparator.comparing(BukkitResourceTransferCodec.ManifestEntry::relativePath));
+                for (BukkitResourceTransferCodec.ManifestEntry file : folder.getValue()) {
+                    update(digest, file.relativePath());
+                    update(digest, Long.toString(file.size()));
+                    update(digest, file.sha256());
+                }
+                folders.put(folder.getKey(), new FolderNode(digest.digest(), List.copyOf(folder.getValue())));
+            }
+            for (Map.Entry<String, FolderNode> folder : folders.entrySet()) {
+                update(digest, folder.getKey());
+                digest.update(folder.getValue().hash());
+            }
+            zones.put(zone.getKey(), new ZoneNode(digest.digest(), folders));
+        }
+        for (Map.Entry<String, ZoneNode> zone : zones.entrySet()) {
+            update(digest, zone.getKey());
+            digest.update(zone.getValue().hash());
+        }
+        return new ManifestMerkleTree(digest.digest(), zones);
+    }
+
+    public String rootHash() {
+        return ResourceHashing.toHex(rootHash);
+    }
+
+    public String zoneHash(String zone) {
+        ZoneNode node = zones.get(zone);
+        return node == null ? "" : ResourceHashing.toHex(node.hash());
+    }
+
+    public String folderHash(String zone, String folder) {
+        FolderNode node = folderNode(zone, folder);
+        return node == null ? "" : ResourceHashing.toHex(node.hash());
+    }
+
+    public Map<String, String> rootChildren() {
+        Map<String, String> children = new LinkedHashMap<>();
+        zones.forEach((zone, node) -> children.put(zone, ResourceHashing.toHex(node.hash())));
+        return children;
+    }
+
+    public Map<String, String> zoneChildren(String zone) {
+        Map<String, String> children = new LinkedHashMap<>();
+        ZoneNode node = zones.get(zone);
+        if (node != null) {
+            node.folders().forEach((folder, folderNode) -> children.put(folder, ResourceHashing.toHex(folderNode.hash())));
+        }
+        return children;
+    }
+
+    public List<BukkitResourceTransferCodec.ManifestEntry> folderFiles(String zone, String folder) {
+        FolderNode node = folderNode(zone, folder);
+        return node == null ? List.of() : node.files();
+    }
+
+    private FolderNode folderNode(String zone, String folder) {
+        ZoneNode node = zones.get(zone);
+        return node == null ? null : node.folders().get(folder);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
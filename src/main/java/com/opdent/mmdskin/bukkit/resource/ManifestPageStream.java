@@ -0,0 +1,98 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class ManifestPageStream implements ResourceTransferEngine.PacketStream {
+    private static final int PAGE_HEADER_BYTES = 16;
+    private static final int ENTRY_OVERHEAD_BYTES = 3 + 3 + 3 + 10;
+
+    private final List<BukkitResourceTransferCodec.ManifestEntry> entries;
+    private final String transferId;
+    private final String serverId;
+    private final String version;
+    private final int[] pageStarts;
+    private int nextPage;
+
+    public ManifestPageStream(List<BukkitResourceTransferCodec.ManifestEntry> entries, String transferId, String serverId, long version, int pageBytes) {
+        this.entries = entries;
+        this.transferId = transferId;
+        this.serverId = serverId;
+        this.version = Long.toString(version);
+        this.pageStarts = paginate(entries, Math.max(1024, pageBytes));
+    }
+
+    public int pageCount() {
+        return pageStarts.length;
+    }
+
+    @Override
+    public byte[] next() throws IOException {
+        if (nextPage >= pageStarts.length) {
+            return null;
+        }
+        int from = pageStarts[nextPage];
+        int to = nextPage + 1 < pageStarts.length ? pageStarts[nextPage + 1] : entries.size();
+        byte[] encoded = BukkitResourceTransferCodec.encode(new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.MANIFEST,
+                transferId,
+                serverId,
+                "",
+                "",
+                "",
+                nextPage,
+                pageStarts.length,
+                entries.size(),
+                version,
+                BukkitResourceTransferCodec.encodeManifestBinary(entries.subList(from, to)),
+                List.of(),
+                BukkitResourceTransferCodec.MANIFEST_BINARY
+        ));
+        nextPage++;
+        return encoded;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    static int[] paginate(List<BukkitResourceTransferCodec.ManifestEntry> entries, int pageBytes) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        Set<String> names = new HashSet<>();
+        int pageSize = PAGE_HEADER_BYTES;
+        int pageEntries = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            BukkitResourceTransferCodec.ManifestEntry entry = entries.get(i);
+            int entryBytes = ENTRY_OVERHEAD_BYTES
+                    + BukkitResourceTransferCodec.utf8Length(entry.relativePath())
+                    + (entry.sha256() == null ? 0 : entry.sha256().length() / 2);
+            if (!names.contains("z:" + entry.zone())) {
+                entryBytes += 3 + BukkitResourceTransferCodec.utf8Length(entry.zone());
+            }
+            if (!names.contains("f:" + entry.folderName())) {
+                entryBytes += 3 + BukkitResourceTransferCodec.utf8Length(entry.folderName());
+            }
+            if (pageEntries > 0 && pageSize + entryBytes > pageBytes) {
+                starts.add(i);
+                names.clear();
+                pageSize = PAGE_HEADER_BYTES;
+                pageEntries = 0;
+                i--;
+                continue;
+            }
+            names.add("z:" + entry.zone());
+            names.add("f:" + entry.folderName());
+            pageSize += entryBytes;
+            pageEntries++;
+        }
+        int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class MerkleNodeStream implements ResourceTransferEngine.PacketStream {
+    private static final int PAGE_HEADER_BYTES = 16;
+
+    private final String transferId;
+    private final String serverId;
+    private final String zone;
+    private final String folderName;
+    private final String hash;
+    private final List<Map.Entry<String, String>> children;
+    private final List<BukkitResourceTransferCodec.ManifestEntry> files;
+    private final int[] pageStarts;
+    private int nextPage;
+
+    private MerkleNodeStream(String transferId, String serverId, String zone, String folderName, String hash,
+                             List<Map.Entry<String, String>> children, List<BukkitResourceTransferCodec.ManifestEntry> files,
+                             int[] pageStarts) {
+        this.transferId = transferId;
+        this.serverId = serverId;
+        this.zone = zone;
+        this.folderName = folderName;
+        this.hash = hash;
+        this.children = children;
+        this.files = files;
+        this.pageStarts = pageStarts;
+    }
+
+    public static MerkleNodeStream children(String transferId, String serverId, String zone, String folderName,
+                                            String hash, Map<String, String> children, int pageBytes) {
+        List<Map.Entry<String, String>> list = new ArrayList<>(children.entrySet());
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int pageSize = PAGE_HEADER_BYTES;
+        int limit = Math.max(1024, pageBytes);
+        for (int i = 0; i < list.size(); i++) {
+            int childBytes = BukkitResourceTransferCodec.merkleChildSize(list.get(i).getKey());
+            if (i > starts.get(starts.size() - 1) && pageSize + childBytes > limit) {
+                starts.add(i);
+                pageSize = PAGE_HEADER_BYTES;
+            }
+            pageSize += childBytes;
+        }
+        int[] pageStarts = new int[starts.size()];
+        for (int i = 0; i < pageStarts.length; i++) {
+            pageStarts[i] = starts.get(i);
+        }
+        return new MerkleNodeStream(transferId, serverId, zone, folderName, hash, list, null, pageStarts);
+    }
+
+    public static MerkleNodeStream files(String transferId, String serverId, String zone, String folderName,
+                                         String hash, List<BukkitResourceTransferCodec.ManifestEntry> files, int pageBytes) {
+        return new MerkleNodeStream(transferId, serverId, zone, folderName, hash, null, files,
+                ManifestPageStream.paginate(files, Math.max(1024, pageBytes)));
+    }
+
+    @Override
+    public byte[] next() throws IOException {
+        if (nextPage >= pageStarts.length) {
+            return null;
+        }
+        int total = files != null ? files.size() : children.size();
+        int from = pageStarts[nextPage];
+        int to = nextPage + 1 < pageStarts.length ? pageStarts[nextPage + 1] : total;
+        byte[] payload;
+        String message;
+        if (files != null) {
+            payload = BukkitResourceTransferCodec.encodeManifestBinary(files.subList(from, to));
+            message = BukkitResourceTransferCodec.MANIFEST_BINARY;
+        } else {
+            Map<String, String> page = new LinkedHashMap<>();
+            for (Map.Entry<String, String> child : children.subList(from, to)) {
+                page.put(child.getKey(), child.getValue());
+            }
+            payload = BukkitResourceTransferCodec.encodeMerkleChildren(page);
+            message = BukkitResourceTransferCodec.MERKLE_CHILDREN;
+        }
+        byte[] encoded = BukkitResourceTransferCodec.encode(new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.MERKLE_NODE,
+                transferId,
+                serverId,
+                zone,
+                folderName,
+                "",
+                nextPage,
+                pageStarts.length,
+                total,
+                hash,
+                payload,
+                List.of(),
+                message
+        ));
+        nextPage++;
+        return encoded;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,10 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import com.tendoarisu.mmdskin.sync.util.MMDSyncNativeBridge;
+
+public final class NativePayloadCipher implements PayloadCipher {
+    @Override
+    public byte[] encrypt(byte[] data, byte[] key) {
+        return MMDSyncNativeBridge.aesEncrypt(data, key);
+    }
+}
@@ -0,0 +1,6 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+@FunctionalInterface
+public interface PayloadCipher {
+    byte[] encrypt(byte[] data, byte[] key);
+}
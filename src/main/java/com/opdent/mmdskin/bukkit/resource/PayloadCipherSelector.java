@@ -0,0 +1,91 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Logger;
+
+public final class PayloadCipherSelector {
+    private static final int SAMPLE_BYTES = 1024 * 1024;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final long MEASURE_NANOS = 150_000_000L;
+
+    private PayloadCipherSelector() {
+    }
+
+    public record Selection(PayloadCipher cipher, String name, double nativeMegabytesPerSecond, double jceMegabytesPerSecond) {
+    }
+
+    public static Selection select(PayloadCipher nativeCipher, Logger logger) {
+        JcePayloadCipher jce = new JcePayloadCipher();
+        byte[] key = new byte[32];
+        new Random(0x4D4D44L).nextBytes(key);
+        byte[] sample = new byte[SAMPLE_BYTES];
+        new Random(SAMPLE_BYTES).nextBytes(sample);
+
+        double jceSpeed = measure(jce, sample, key);
+        double nativeSpeed = -1.0;
+        boolean interoperable = false;
+        String nativeProblem = null;
+        try {
+            byte[] probe = nativeCipher.encrypt(sample, key);
+            if (probe == null) {
+                nativeProblem = "原生库返回空结果";
+            } else {
+                nativeSpeed = measure(nativeCipher, sample, key);
+                interoperable = Arrays.equals(jce.decrypt(probe, key), sample);
+            }
+        } catch (LinkageError e) {
+            nativeProblem = "原生库不可用: " + e.getMessage();
+        } catch (GeneralSecurityException e) {
+            interoperable = false;
+        } catch (RuntimeException e) {
+            nativeProblem = "原生库加密失败: " + e;
+        }
+
+        Selection selection;
+        if (nativeProblem == null && (!interoperable || nativeSpeed >= jceSpeed)) {
+            selection = new Selection(nativeCipher, "native", nativeSpeed, jceSpeed);
+            if (!interoperable) {
+                logger.warning("原生库输出格式与 JCE AES-GCM 不一致，原生库不可用时将无法回退。");
+            }
+        } else if (jceSpeed > 0.0) {
+            selection = new Selection(jce, "jce", nativeSpeed, jceSpeed);
+            if (nativeProblem != null) {
+                logger.warning("传输加密改用 JCE AES-GCM，" + nativeProblem);
+            }
+        } else {
+            selection = new Selection(nativeCipher, "native", nativeSpeed, jceSpeed);
+            logger.severe("没有可用的传输加密引擎，需要加密的资源将拒绝下发。");
+        }
+        logger.info(String.format(Locale.ROOT, "传输加密引擎: %s (native %s, jce %s)",
+                selection.name(), format(nativeSpeed), format(jceSpeed)));
+        return selection;
+    }
+
+    private static double measure(PayloadCipher cipher, byte[] sample, byte[] key) {
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                if (cipher.encrypt(sample, key) == null) {
+                    return -1.0;
+                }
+            }
+            long bytes = 0L;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                cipher.encrypt(sample, key);
+                bytes += sample.length;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MEASURE_NANOS);
+            return bytes / (1024.0 * 1024.0) / (elapsed / 1_000_000_000.0);
+        } catch (LinkageError | RuntimeException e) {
+            return -1.0;
+        }
+    }
+
+    private static String format(double megabytesPerSecond) {
+        return megabytesPerSecond < 0.0 ? "不可用" : String.format(Locale.ROOT, "%.0f MB/s", megabytesPerSecond);
+    }
+}
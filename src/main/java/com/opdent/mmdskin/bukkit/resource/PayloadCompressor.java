@@ -0,0 +1,109 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+public final class PayloadCompressor {
+    private static final int PROBE_SAMPLE_SIZE = 64 * 1024;
+    private static final double PROBE_MAX_RATIO = 0.9;
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "webp", "zip", "gz", "7z", "rar", "ogg", "mp3", "mp4"
+    );
+
+    private static final int MAX_PROBE_RESULTS = 4096;
+
+    private final LinkedHashMap<String, ProbeResult> probeResults = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProbeResult> eldest) {
+            return size() > MAX_PROBE_RESULTS;
+        }
+    };
+
+    private record ProbeResult(long size, long lastModified, boolean compress) {
+    }
+
+    public boolean shouldCompress(Path file, long size, long lastModified) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1))) {
+            return false;
+        }
+        if (size < 512) {
+            return false;
+        }
+        String key = file.toAbsolutePath().normalize().toString();
+        synchronized (probeResults) {
+            ProbeResult cached = probeResults.get(key);
+            if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+                return cached.compress();
+            }
+        }
+        boolean compress = probe(file, size);
+        synchronized (probeResults) {
+            probeResults.put(key, new ProbeResult(size, lastModified, compress));
+        }
+        return compress;
+    }
+
+    public void clear() {
+        synchronized (probeResults) {
+            probeResults.clear();
+        }
+    }
+
+    public static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        try (GZIPOutputStream out = new GZIPOutputStream(baos, 64 * 1024)) {
+            out.write(data);
+        }
+        return baos.toByteArray();
+    }
+
+    private static boolean probe(Path file, long size) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int sampleSize = (int) Math.min(PROBE_SAMPLE_SIZE, size);
+            long total = 0L;
+            long compressed = 0L;
+            long[] offsets = size > PROBE_SAMPLE_SIZE * 4L
+                    ? new long[]{0L, size / 2}
+                    : new long[]{0L};
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                byte[] sample = new byte[sampleSize];
+                byte[] output = new byte[sampleSize + 64];
+                for (long offset : offsets) {
+                    int filled = 0;
+                    while (filled < sampleSize) {
+                        int read = channel.read(ByteBuffer.wrap(sample, filled, sampleSize - filled), offset + filled);
+                        if (read <= 0) {
+                            break;
+                        }
+                        filled += read;
+                    }
+                    deflater.reset();
+                    deflater.setInput(sample, 0, filled);
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        compressed += deflater.deflate(output);
+                    }
+                    total += filled;
+                }
+            } finally {
+                deflater.end();
+            }
+            return total > 0 && compressed < total * PROBE_MAX_RATIO;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+public final class PreparedPayloadCache {
+    private static final String SPILL_SUFFIX = ".bin";
+
+    private final Path spillDir;
+    private final long memoryBudget;
+    private final long diskBudget;
+    private final Logger logger;
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(64, 0.75f, true);
+    private final SingleFlight<String, byte[]> preparing = new SingleFlight<>();
+    private long memoryBytes;
+    private long diskBytes;
+
+    public PreparedPayloadCache(Path spillDir, long memoryBudget, long diskBudget, Logger logger) {
+        this.spillDir = spillDir;
+        this.memoryBudget = Math.max(0L, memoryBudget);
+        this.diskBudget = Math.max(0L, diskBudget);
+        this.logger = logger;
+    }
+
+    public record Key(String source, long size, long lastModified, String keyFingerprint, String encoding) {
+        public static Key forContent(String sha256, long size, String keyFingerprint, String encoding) {
+            return new Key("sha256:" + sha256, size, 0L, keyFingerprint, encoding);
+        }
+
+        String id() {
+            return sha256Hex(source + '\n' + size + '\n' + lastModified + '\n' + keyFingerprint + '\n' + encoding);
+        }
+    }
+
+    @FunctionalInterface
+    public interface PayloadLoader {
+        byte[] load() throws IOException;
+    }
+
+    public void open() {
+        List<Path> files = new ArrayList<>();
+        List<Path> leftovers = new ArrayList<>();
+        try {
+            Files.createDirectories(spillDir);
+            try (Stream<Path> stream = Files.list(spillDir)) {
+                stream.sorted((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()))
+                        .forEach(path -> (path.getFileName().toString().endsWith(SPILL_SUFFIX) ? files : leftovers).add(path));
+            }
+        } catch (IOException e) {
+            logger.warning("打开传输负载磁盘缓存失败: " + e.getMessage());
+            return;
+        }
+
+        List<Path> overflow = new ArrayList<>();
+        synchronized (this) {
+            disk.clear();
+            diskBytes = 0L;
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = file.toFile().length();
+                disk.put(name.substring(0, name.length() - SPILL_SUFFIX.length()), size);
+                diskBytes += size;
+            }
+            collectDiskOverflow(overflow);
+        }
+        deleteAll(overflow);
+        deleteAll(leftovers);
+    }
+
+    public TransferPayload open(Key key, PayloadLoader loader) throws IOException {
+        String id = key.id();
+        byte[] cached = getFromMemory(id);
+        if (cached != null) {
+            return TransferPayload.of(cached);
+        }
+
+        TransferPayload spilled = openFromDisk(id);
+        if (spilled != null) {
+            return spilled;
+        }
+
+        byte[] prepared = preparing.run(id, () -> {
+            byte[] raced = getFromMemory(id);
+            if (raced != null || isOnDisk(id)) {
+                return raced;
+            }
+            byte[] loaded = loader.load();
+            if (loaded == null) {
+                return new byte[0];
+            }
+            putInMemory(id, loaded);
+            return loaded;
+        });
+        if (prepared == null || prepared.length > memoryBudget) {
+            spilled = openFromDisk(id);
+            if (spilled != null) {
+                return spilled;
+            }
+        }
+        if (prepared == null) {
+            prepared = loader.load();
+        }
+        return TransferPayload.of(prepared);
+    }
+
+    public void put(Key key, byte[] payload) {
+        String id = key.id();
+        boolean spilled;
+        synchronized (this) {
+            Long size = disk.remove(id);
+            spilled = size != null;
+            if (spilled) {
+                diskBytes -= size;
+            }
+        }
+        if (spilled) {
+            deleteAll(List.of(spillFile(id)));
+        }
+        putInMemory(id, payload);
+    }
+
+    private synchronized boolean isOnDisk(String id) {
+        return disk.containsKey(id);
+    }
+
+    public void clear() {
+        List<Path> removed = new ArrayList<>();
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0L;
+            for (String id : disk.keySet()) {
+                removed.add(spillFile(id));
+            }
+            disk.clear();
+            diskBytes = 0L;
+        }
+        deleteAll(removed);
+    }
+
+    private synchronized byte[] getFromMemory(String id) {
+        return memory.get(id);
+    }
+
+    private TransferPayload openFromDisk(String id) {
+        synchronized (this) {
+            if (disk.get(id) == null) {
+                return null;
+            }
+        }
+        try {
+            return TransferPayload.open(spillFile(id));
+        } catch (IOException e) {
+            synchronized (this) {
+                Long size = disk.remove(id);
+                if (size != null) {
+                    diskBytes -= size;
+                }
+            }
+            return null;
+        }
+    }
+
+    private boolean putInMemory(String id, byte[] payload) {
+        Map<String, byte[]> evicted = new LinkedHashMap<>();
+        boolean retained = payload.length <= memoryBudget;
+        synchronized (this) {
+            if (!retained) {
+                evicted.put(id, payload);
+            } else {
+                byte[] previous = memory.put(id, payload);
+                if (previous != null) {
+                    memoryBytes -= previous.length;
+                }
+                memoryBytes += payload.length;
+                Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+                while (memoryBytes > memoryBudget && it.hasNext()) {
+                    Map.Entry<String, byte[]> eldest = it.next();
+                    it.remove();
+                    memoryBytes -= eldest.getValue().length;
+                    evicted.put(eldest.getKey(), eldest.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : evicted.entrySet()) {
+            spill(entry.getKey(), entry.getValue());
+        }
+        return retained;
+    }
+
+    private void spill(String id, byte[] payload) {
+        if (payload.length > diskBudget) {
+            return;
+        }
+        synchronized (this) {
+            if (disk.containsKey(id)) {
+                return;
+            }
+        }
+
+        Path target = spillFile(id);
+        Path temp = null;
+        try {
+            Files.createDirectories(spillDir);
+            temp = Files.createTempFile(spillDir, id, ".tmp");
+            Files.write(temp, payload);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warning("写入传输负载磁盘缓存失败: " + e.getMessage());
+            if (temp != null) {
+                deleteAll(List.of(temp));
+            }
+            return;
+        }
+
+        List<Path> overflow = new ArrayList<>();
+        synchronized (this) {
+            Long previous = disk.put(id, (long) payload.length);
+            if (previous != null) {
+                diskBytes -= previous;
+            }
+            diskBytes += payload.length;
+            collectDiskOverflow(overflow);
+        }
+        deleteAll(overflow);
+    }
+
+    private void collectDiskOverflow(List<Path> overflow) {
+        Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+        while (diskBytes > diskBudget && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            diskBytes -= eldest.getValue();
+            overflow.add(spillFile(eldest.getKey()));
+        }
+    }
+
+    private void deleteAll(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private Path spillFile(String id) {
+        return spillDir.resolve(id + SPILL_SUFFIX);
+    }
+
+    public static String fingerprint(byte[] key) {
+        if (key == null || key.length == 0) {
+            return "";
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format(Locale.ROOT, "%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
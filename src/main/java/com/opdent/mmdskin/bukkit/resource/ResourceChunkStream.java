@@ -0,0 +1,99 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+public final class ResourceChunkStream implements ResourceTransferEngine.PacketStream {
+    private static final int TAG_SAMPLE_SIZE = 64 * 1024;
+
+    private final TransferPayload payload;
+    private final BukkitResourceTransferCodec.ResourcePacket template;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final BitSet selected;
+    private int nextChunk;
+
+    public ResourceChunkStream(TransferPayload payload, BukkitResourceTransferCodec.ResourcePacket template, int chunkSize) {
+        this(payload, template, chunkSize, null);
+    }
+
+    public ResourceChunkStream(TransferPayload payload, BukkitResourceTransferCodec.ResourcePacket template, int chunkSize, BitSet selected) {
+        this.payload = payload;
+        this.template = template;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount(payload.size(), chunkSize);
+        this.selected = selected;
+        this.nextChunk = nextSelected(0);
+    }
+
+    public static int chunkCount(long size, int chunkSize) {
+        return Math.max(1, (int) ((size + chunkSize - 1) / chunkSize));
+    }
+
+    public static String payloadTag(TransferPayload payload, String sourceDigest) throws IOException {
+        long size = payload.size();
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+        if (sourceDigest != null) {
+            crc.update(sourceDigest.getBytes(StandardCharsets.UTF_8));
+        }
+        int head = (int) Math.min(TAG_SAMPLE_SIZE, size);
+        byte[] sample = new byte[head];
+        payload.read(0L, sample, 0, head);
+        crc.update(sample, 0, head);
+        long tailStart = Math.max(head, size - TAG_SAMPLE_SIZE);
+        int tail = (int) (size - tailStart);
+        payload.read(tailStart, sample, 0, tail);
+        crc.update(sample, 0, tail);
+        return Long.toHexString(size) + "-" + HexFormat.of().toHexDigits((int) crc.getValue());
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    @Override
+    public byte[] next() throws IOException {
+        if (nextChunk < 0 || nextChunk >= chunkCount) {
+            return null;
+        }
+        long start = (long) nextChunk * chunkSize;
+        int length = (int) Math.min(chunkSize, payload.size() - start);
+        byte[] chunk = new byte[Math.max(0, length)];
+        payload.read(start, chunk, 0, chunk.length);
+        byte[] encoded = BukkitResourceTransferCodec.encode(new BukkitResourceTransferCodec.ResourcePacket(
+                BukkitResourceTransferCodec.CHUNK,
+                template.transferId(),
+                template.serverId(),
+                template.zone(),
+                template.folderName(),
+                template.relativePath(),
+                nextChunk,
+                chunkCount,
+                template.totalSize(),
+                template.digest(),
+                chunk,
+                List.of(),
+                template.message()
+        ));
+        nextChunk = nextSelected(nextChunk + 1);
+        return encoded;
+    }
+
+    private int nextSelected(int from) {
+        return selected == null ? from : selected.nextSetBit(from);
+    }
+
+    @Override
+    public void close() {
+        try {
+            payload.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
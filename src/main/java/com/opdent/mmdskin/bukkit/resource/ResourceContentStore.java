@@ -0,0 +1,80 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ResourceContentStore {
+    private final Map<String, Location> byPath;
+    private final Map<String, List<Location>> byDigest;
+
+    public record Location(String zone, String folderName, String relativePath, long size, long lastModified, String sha256) {
+    }
+
+    private ResourceContentStore(Map<String, Location> byPath, Map<String, List<Location>> byDigest) {
+        this.byPath = byPath;
+        this.byDigest = byDigest;
+    }
+
+    static ResourceContentStore build(List<Location> locations) {
+        ResourceContentStore store = new ResourceContentStore(
+                new ConcurrentHashMap<>(Math.max(16, locations.size() * 2)),
+                new ConcurrentHashMap<>());
+        for (Location location : locations) {
+            store.put(location);
+        }
+        return store;
+    }
+
+    void put(Location location) {
+        remove(location.zone(), location.folderName(), location.relativePath());
+        if (location.sha256() == null || location.sha256().isEmpty()) {
+            return;
+        }
+        byPath.put(pathKey(location.zone(), location.folderName(), location.relativePath()), location);
+        byDigest.merge(location.sha256(), List.of(location), (existing, added) -> {
+            List<Location> merged = new ArrayList<>(existing.size() + 1);
+            merged.addAll(existing);
+            merged.addAll(added);
+            return List.copyOf(merged);
+        });
+    }
+
+    void remove(String zone, String folderName, String relativePath) {
+        Location removed = byPath.remove(pathKey(zone, folderName, relativePath));
+        if (removed == null) {
+            return;
+        }
+        byDigest.computeIfPresent(removed.sha256(), (digest, existing) -> {
+            List<Location> remaining = new ArrayList<>(existing);
+            remaining.remove(removed);
+            return remaining.isEmpty() ? null : List.copyOf(remaining);
+        });
+    }
+
+    public String digestOf(String zone, String folderName, String relativePath, long size, long lastModified) {
+        Location location = byPath.get(pathKey(zone, folderName, relativePath));
+        if (location == null || location.size() != size || location.lastModified() != lastModified) {
+            return null;
+        }
+        return location.sha256();
+    }
+
+    public List<Location> locate(String sha256) {
+        List<Location> locations = byDigest.get(sha256);
+        return locations == null ? List.of() : locations;
+    }
+
+    public int uniqueContents() {
+        return byDigest.size();
+    }
+
+    public int locations() {
+        return byPath.size();
+    }
+
+    private static String pathKey(String zone, String folderName, String relativePath) {
+        return zone + '\0' + folderName + '/' + relativePath;
+    }
+}
@@ -0,0 +1,104 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class ResourceHashEngine {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final ForkJoinPool pool;
+    private final Logger logger;
+
+    public record FileDigests(String md5, String sha256) {
+    }
+
+    public ResourceHashEngine(int parallelism, Logger logger) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(Math.max(1, threads), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("MmdSkin-Hash-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.logger = logger;
+    }
+
+    public FileDigests digest(Path file) throws IOException {
+        MessageDigest md5 = ResourceHashing.newDigest("MD5");
+        MessageDigest sha256 = ResourceHashing.newDigest("SHA-256");
+        byte[] buffer = BUFFERS.get();
+        try (InputStream is = Files.newInputStream(file)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                md5.update(buffer, 0, read);
+                sha256.update(buffer, 0, read);
+            }
+        }
+        return new FileDigests(ResourceHashing.toHex(md5.digest()), ResourceHashing.toHex(sha256.digest()));
+    }
+
+    public Map<Path, FileDigests> digestAll(List<Path> files) {
+        Map<Path, FileDigests> results = new ConcurrentHashMap<>();
+        if (files.isEmpty()) {
+            return results;
+        }
+        if (files.size() == 1) {
+            new DigestTask(files, 0, 1, results).compute();
+            return results;
+        }
+        pool.invoke(new DigestTask(files, 0, files.size(), results));
+        return results;
+    }
+
+    public Executor executor() {
+        return pool;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private final class DigestTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final Map<Path, FileDigests> results;
+
+        DigestTask(List<Path> files, int from, int to, Map<Path, FileDigests> results) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DigestTask(files, from, mid, results), new DigestTask(files, mid, to, results));
+                return;
+            }
+            Path file = files.get(from);
+            try {
+                results.put(file, digest(file));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "计算文件摘要失败: " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public final class ResourceHashing {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ResourceHashing() {
+    }
+
+    public static String md5Hex(byte[] data) throws IOException {
+        MessageDigest digest = newDigest("MD5");
+        digest.update(data);
+        return toHex(digest.digest());
+    }
+
+    public static String md5Hex(Path file) throws IOException {
+        MessageDigest digest = newDigest("MD5");
+        try (InputStream is = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] hash) {
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    static MessageDigest newDigest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("计算 " + algorithm + " 失败", e);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+public final class ResourceManifestIndex {
+    private static final int INDEX_MAGIC = 0x4D4D4449;
+    private static final int INDEX_VERSION = 3;
+    private static final int MAX_DELTA_HISTORY = 64;
+
+    private final Path indexFile;
+    private final ResourceHashEngine hashEngine;
+    private final Logger logger;
+    private final Map<String, TreeMap<String, IndexedFile>> zones = new LinkedHashMap<>();
+    private volatile List<BukkitResourceTransferCodec.ManifestEntry> snapshot = List.of();
+    private volatile boolean dirty = true;
+    private boolean changedSinceSave;
+    private final ArrayDeque<ManifestDelta> history = new ArrayDeque<>();
+    private volatile long version = System.currentTimeMillis();
+    private volatile LongConsumer changeListener;
+    private ManifestMerkleTree merkleTree;
+    private volatile ResourceContentStore contents = ResourceContentStore.build(List.of());
+
+    public ResourceManifestIndex(Path indexFile, ResourceHashEngine hashEngine, Logger logger) {
+        this.indexFile = indexFile;
+        this.hashEngine = hashEngine;
+        this.logger = logger;
+    }
+
+    private record IndexedFile(long size, long lastModified, String md5, String sha256) {
+    }
+
+    public record ManifestDelta(
+            long fromVersion,
+            long toVersion,
+            List<BukkitResourceTransferCodec.ManifestEntry> upserts,
+            List<BukkitResourceTransferCodec.ManifestEntry> removals
+    ) {
+        public boolean isEmpty() {
+            return upserts.isEmpty() && removals.isEmpty();
+        }
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public void setChangeListener(LongConsumer changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    public synchronized ManifestDelta changesSince(long acknowledged) {
+        long current = version;
+        if (acknowledged == current) {
+            return new ManifestDelta(acknowledged, current, List.of(), List.of());
+        }
+        if (acknowledged > current || history.isEmpty() || history.peekFirst().fromVersion() > acknowledged) {
+            return null;
+        }
+        Map<String, BukkitResourceTransferCodec.ManifestEntry> upserts = new LinkedHashMap<>();
+        Map<String, BukkitResourceTransferCodec.ManifestEntry> removals = new LinkedHashMap<>();
+        for (ManifestDelta delta : history) {
+            if (delta.toVersion() <= acknowledged) {
+                continue;
+            }
+            for (BukkitResourceTransferCodec.ManifestEntry entry : delta.upserts()) {
+                removals.remove(entryKey(entry));
+                upserts.put(entryKey(entry), entry);
+            }
+            for (BukkitResourceTransferCodec.ManifestEntry entry : delta.removals()) {
+                upserts.remove(entryKey(entry));
+                removals.put(entryKey(entry), entry);
+            }
+        }
+        return new ManifestDelta(acknowledged, current, List.copyOf(upserts.values()), List.copyOf(removals.values()));
+    }
+
+    public List<BukkitResourceTransferCodec.ManifestEntry> entries(Map<String, Path> zoneRoots) {
+        if (dirty) {
+            refresh(zoneRoots);
+        }
+        List<BukkitResourceTransferCodec.ManifestEntry> current = snapshot;
+        return current != null ? current : materializeSnapshot();
+    }
+
+    private synchronized List<BukkitResourceTransferCodec.ManifestEntry> materializeSnapshot() {
+        if (snapshot == null) {
+            snapshot = buildEntries();
+        }
+        return snapshot;
+    }
+
+    public synchronized ManifestMerkleTree merkleTree(Map<String, Path> zoneRoots) {
+        List<BukkitResourceTransferCodec.ManifestEntry> entries = entries(zoneRoots);
+        if (merkleTree == null) {
+            merkleTree = ManifestMerkleTree.build(entries);
+        }
+        return merkleTree;
+    }
+
+    public ResourceContentStore contents() {
+        return contents;
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public synchronized void refresh(Map<String, Path> zoneRoots) {
+        dirty = false;
+        materializeSnapshot();
+        zones.keySet().removeIf(zone -> !zoneRoots.containsKey(zone));
+        for (Map.Entry<String, Path> zone : zoneRoots.entrySet()) {
+            refreshZone(zone.getKey(), zone.getValue());
+        }
+        rebuildSnapshot();
+        save();
+    }
+
+    public synchronized void rescanZone(String zone, Path zoneRoot) {
+        if (zone == null) {
+            return;
+        }
+        materializeSnapshot();
+        refreshZone(zone, zoneRoot);
+        rebuildSnapshot();
+    }
+
+    public void refreshFile(String zone, Path zoneRoot, Path file) {
+        if (file != null) {
+            refreshFiles(zone, zoneRoot, List.of(file));
+        }
+    }
+
+    public synchronized void refreshFiles(String zone, Path zoneRoot, Collection<Path> paths) {
+        if (zone == null || zoneRoot == null || paths.isEmpty()) {
+            return;
+        }
+        TreeMap<String, IndexedFile> files = zones.computeIfAbsent(zone, key -> new TreeMap<>());
+        Map<Path, String> staleKeys = new LinkedHashMap<>();
+        Map<Path, BasicFileAttributes> staleAttributes = new LinkedHashMap<>();
+        Map<String, IndexedFile> touched = new LinkedHashMap<>();
+        Path normalizedRoot = zoneRoot.normalize();
+        for (Path path : paths) {
+            Path normalized = path.normalize();
+            if (!normalized.startsWith(normalizedRoot) || normalized.equals(normalizedRoot)) {
+                continue;
+            }
+            String prefix = normalizedRoot.relativize(normalized).toString().replace('\\', '/');
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    collectTree(zoneRoot, path, files, staleKeys, staleAttributes);
+                    continue;
+                }
+                String relative = relativeKey(zoneRoot, path);
+                if (!attributes.isRegularFile() || relative == null) {
+                    removeTree(files, prefix, touched);
+                } else if (isStale(files.get(relative), attributes)) {
+                    staleKeys.put(path, relative);
+                    staleAttributes.put(path, attributes);
+                }
+            } catch (NoSuchFileException e) {
+                removeTree(files, prefix, touched);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "更新资源清单索引失败: " + path, e);
+            }
+        }
+        applyDigests(files, staleKeys, staleAttributes, touched);
+        applyChanges(zone, files, touched);
+    }
+
+    public synchronized void load() {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                logger.warning("资源清单索引格式不匹配，将重新构建。");
+                return;
+            }
+            zones.clear();
+            long storedVersion = in.readLong();
+            int zoneCount = in.readInt();
+            for (int z = 0; z < zoneCount; z++) {
+                String zone = in.readUTF();
+                int count = in.readInt();
+                TreeMap<String, IndexedFile> files = new TreeMap<>();
+                for (int i = 0; i < count; i++) {
+                    String relative = in.readUTF();
+                    long size = in.readLong();
+                    long lastModified = in.readLong();
+                    String md5 = in.readUTF();
+                    String sha256 = in.readUTF();
+                    files.put(relative, new IndexedFile(size, lastModified, md5, sha256));
+                }
+                zones.put(zone, files);
+            }
+            version = storedVersion;
+            history.clear();
+            snapshot = buildEntries();
+            contents = buildContents();
+            merkleTree = null;
+        } catch (IOException e) {
+            zones.clear();
+            logger.warning("加载资源清单索引失败: " + e.getMessage());
+        }
+    }
+
+    public synchronized void save() {
+        if (!changedSinceSave) {
+            return;
+        }
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeLong(version);
+                out.writeInt(zones.size());
+                for (Map.Entry<String, TreeMap<String, IndexedFile>> zone : zones.entrySet()) {
+                    out.writeUTF(zone.getKey());
+                    out.writeInt(zone.getValue().size());
+                    for (Map.Entry<String, IndexedFile> file : zone.getValue().entrySet()) {
+                        out.writeUTF(file.getKey());
+                        out.writeLong(file.getValue().size());
+                        out.writeLong(file.getValue().lastModified());
+                        out.writeUTF(file.getValue().md5());
+                        out.writeUTF(file.getValue().sha256());
+                    }
+                }
+            }
+            try {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            changedSinceSave = false;
+        } catch (IOException e) {
+            logger.warning("保存资源清单索引失败: " + e.getMessage());
+        }
+    }
+
+    private void refreshZone(String zone, Path zoneRoot) {
+        TreeMap<String, IndexedFile> files = zones.computeIfAbsent(zone, key -> new TreeMap<>());
+        if (zoneRoot == null || !Files.isDirectory(zoneRoot)) {
+            changedSinceSave |= !files.isEmpty();
+            files.clear();
+            return;
+        }
+
+        Map<Path, String> staleKeys = new LinkedHashMap<>();
+        Map<Path, BasicFileAttributes> staleAttributes = new LinkedHashMap<>();
+        Set<String> seen = collectTree(zoneRoot, zoneRoot, files, staleKeys, staleAttributes);
+        if (seen == null) {
+            return;
+        }
+        changedSinceSave |= files.keySet().retainAll(seen);
+        applyDigests(files, staleKeys, staleAttributes, null);
+    }
+
+    private Set<String> collectTree(Path zoneRoot, Path start, TreeMap<String, IndexedFile> files,
+                                    Map<Path, String> staleKeys, Map<Path, BasicFileAttributes> staleAttributes) {
+        Set<String> seen = new HashSet<>();
+        try (Stream<Path> stream = Files.walk(start)) {
+            stream.forEach(path -> {
+                String relative = relativeKey(zoneRoot, path);
+                if (relative == null) {
+                    return;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (!attributes.isRegularFile()) {
+                        return;
+                    }
+                    seen.add(relative);
+                    if (isStale(files.get(relative), attributes)) {
+                        staleKeys.put(path, relative);
+                        staleAttributes.put(path, attributes);
+                    }
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "构建资源清单时跳过文件: " + path, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "扫描资源清单失败: " + start, e);
+            return null;
+        }
+        return seen;
+    }
+
+    private void removeTree(TreeMap<String, IndexedFile> files, String prefix, Map<String, IndexedFile> touched) {
+        IndexedFile removed = files.remove(prefix);
+        if (removed != null) {
+            touched.putIfAbsent(prefix, removed);
+            changedSinceSave = true;
+        }
+        Map<String, IndexedFile> children = files.subMap(prefix + "/", prefix + "0");
+        if (!children.isEmpty()) {
+            children.forEach(touched::putIfAbsent);
+            children.clear();
+            changedSinceSave = true;
+        }
+    }
+
+    private void applyDigests(TreeMap<String, IndexedFile> files, Map<Path, String> staleKeys,
+                              Map<Path, BasicFileAttributes> staleAttributes, Map<String, IndexedFile> touched) {
+        if (staleKeys.isEmpty()) {
+            return;
+        }
+        Map<Path, ResourceHashEngine.FileDigests> digests = hashEngine.digestAll(new ArrayList<>(staleKeys.keySet()));
+        for (Map.Entry<Path, String> stale : staleKeys.entrySet()) {
+            if (touched != null && !touched.containsKey(stale.getValue())) {
+                touched.put(stale.getValue(), files.get(stale.getValue()));
+            }
+            ResourceHashEngine.FileDigests fileDigests = digests.get(stale.getKey());
+            if (fileDigests == null) {
+                changedSinceSave |= files.remove(stale.getValue()) != null;
+                continue;
+            }
+            putEntry(files, stale.getValue(), staleAttributes.get(stale.getKey()), fileDigests);
+        }
+    }
+
+    private static boolean isStale(IndexedFile existing, BasicFileAttributes attributes) {
+        return existing == null
+                || existing.size() != attributes.size()
+                || existing.lastModified() != attributes.lastModifiedTime().toMillis();
+    }
+
+    private void putEntry(TreeMap<String, IndexedFile> files, String relative, BasicFileAttributes attributes, ResourceHashEngine.FileDigests digests) {
+        files.put(relative, new IndexedFile(
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                digests.md5(),
+                digests.sha256()
+        ));
+        changedSinceSave = true;
+    }
+
+    private void rebuildSnapshot() {
+        List<BukkitResourceTransferCodec.ManifestEntry> previous = snapshot;
+        List<BukkitResourceTransferCodec.ManifestEntry> current = buildEntries();
+        snapshot = current;
+        contents = buildContents();
+        merkleTree = null;
+
+        Set<BukkitResourceTransferCodec.ManifestEntry> unchanged = new HashSet<>(previous);
+        Set<String> currentKeys = new HashSet<>();
+        List<BukkitResourceTransferCodec.ManifestEntry> upserts = new ArrayList<>();
+        for (BukkitResourceTransferCodec.ManifestEntry entry : current) {
+            currentKeys.add(entryKey(entry));
+            if (!unchanged.contains(entry)) {
+                upserts.add(entry);
+            }
+        }
+        List<BukkitResourceTransferCodec.ManifestEntry> removals = new ArrayList<>();
+        for (BukkitResourceTransferCodec.ManifestEntry entry : previous) {
+            if (!currentKeys.contains(entryKey(entry))) {
+                removals.add(entry);
+            }
+        }
+        publish(upserts, removals);
+    }
+
+    private void applyChanges(String zone, TreeMap<String, IndexedFile> files, Map<String, IndexedFile> touched) {
+        List<BukkitResourceTransferCodec.ManifestEntry> upserts = new ArrayList<>();
+        List<BukkitResourceTransferCodec.ManifestEntry> removals = new ArrayList<>();
+        ResourceContentStore store = contents;
+        for (Map.Entry<String, IndexedFile> change : touched.entrySet()) {
+            String[] parts = change.getKey().split("/", 2);
+            IndexedFile before = change.getValue();
+            IndexedFile after = files.get(change.getKey());
+            if (after == null) {
+                store.remove(zone, parts[0], parts[1]);
+                if (before != null) {
+                    removals.add(new BukkitResourceTransferCodec.ManifestEntry(zone, parts[0], parts[1], before.size(), before.sha256()));
+                }
+                continue;
+            }
+            store.put(new ResourceContentStore.Location(zone, parts[0], parts[1], after.size(), after.lastModified(), after.sha256()));
+            if (before == null || before.size() != after.size() || !Objects.equals(before.sha256(), after.sha256())) {
+                upserts.add(new BukkitResourceTransferCodec.ManifestEntry(zone, parts[0], parts[1], after.size(), after.sha256()));
+            }
+        }
+        if (!upserts.isEmpty() || !removals.isEmpty()) {
+            snapshot = null;
+            merkleTree = null;
+        }
+        publish(upserts, removals);
+    }
+
+    private void publish(List<BukkitResourceTransferCodec.ManifestEntry> upserts, List<BukkitResourceTransferCodec.ManifestEntry> removals) {
+        if (upserts.isEmpty() && removals.isEmpty()) {
+            return;
+        }
+
+        long from = version;
+        version = from + 1;
+        history.addLast(new ManifestDelta(from, from + 1, List.copyOf(upserts), List.copyOf(removals)));
+        while (history.size() > MAX_DELTA_HISTORY) {
+            history.removeFirst();
+        }
+        changedSinceSave = true;
+        LongConsumer listener = changeListener;
+        if (listener != null) {
+            listener.accept(from + 1);
+        }
+    }
+
+    private List<BukkitResourceTransferCodec.ManifestEntry> buildEntries() {
+        List<BukkitResourceTransferCodec.ManifestEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, TreeMap<String, IndexedFile>> zone : zones.entrySet()) {
+            for (Map.Entry<String, IndexedFile> file : zone.getValue().entrySet()) {
+                String[] parts = file.getKey().split("/", 2);
+                entries.add(new BukkitResourceTransferCodec.ManifestEntry(
+                        zone.getKey(),
+                        parts[0],
+                        parts[1],
+                        file.getValue().size(),
+                        file.getValue().sha256()
+                ));
+            }
+        }
+        return List.copyOf(entries);
+    }
+
+    private ResourceContentStore buildContents() {
+        List<ResourceContentStore.Location> locations = new ArrayList<>();
+        for (Map.Entry<String, TreeMap<String, IndexedFile>> zone : zones.entrySet()) {
+            for (Map.Entry<String, IndexedFile> file : zone.getValue().entrySet()) {
+                String[] parts = file.getKey().split("/", 2);
+                IndexedFile indexed = file.getValue();
+                locations.add(new ResourceContentStore.Location(
+                        zone.getKey(),
+                        parts[0],
+                        parts[1],
+                        indexed.size(),
+                        indexed.lastModified(),
+                        indexed.sha256()
+                ));
+            }
+        }
+        return ResourceContentStore.build(locations);
+    }
+
+    private static String entryKey(BukkitResourceTransferCodec.ManifestEntry entry) {
+        return entry.zone() + '\0' + entry.folderName() + '/' + entry.relativePath();
+    }
+
+    private static String relativeKey(Path zoneRoot, Path path) {
+        Path normalizedRoot = zoneRoot.normalize();
+        Path normalized = path.normalize();
+        if (!normalized.startsWith(normalizedRoot)) {
+            return null;
+        }
+        String relative = normalizedRoot.relativize(normalized).toString().replace('\\', '/');
+        int slash = relative.indexOf('/');
+        if (slash <= 0 || slash == relative.length() - 1) {
+            return null;
+        }
+        return relative;
+    }
+}
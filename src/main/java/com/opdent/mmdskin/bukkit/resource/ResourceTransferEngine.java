@@ -0,0 +1,389 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class ResourceTransferEngine {
+    private final Plugin plugin;
+    private final Logger logger;
+    private final ThreadPoolExecutor workers;
+    private final int maxQueuedPerPlayer;
+    private final int windowPackets;
+    private final Map<UUID, PlayerLane> lanes = new ConcurrentHashMap<>();
+    private final Queue<OutboundPacket> outbound = new ConcurrentLinkedQueue<>();
+    private final Queue<ActiveStream> streams = new ConcurrentLinkedQueue<>();
+    private volatile long globalBytesPerTick;
+    private volatile long playerBytesPerTick;
+    private int roundRobinCursor;
+    private BukkitTask flushTask;
+
+    public ResourceTransferEngine(Plugin plugin, int workerThreads, int maxQueuedPerPlayer, int windowPackets) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.maxQueuedPerPlayer = Math.max(1, maxQueuedPerPlayer);
+        this.windowPackets = Math.max(1, windowPackets);
+        int threads = workerThreads > 0
+                ? workerThreads
+                : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        this.workers = new ThreadPoolExecutor(
+                threads,
+                threads,
+                30L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new WorkerThreadFactory()
+        );
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    public void start() {
+        if (flushTask == null) {
+            flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, 1L, 1L);
+        }
+    }
+
+    public void setEgressBudget(long globalBytesPerTick, long playerBytesPerTick) {
+        this.globalBytesPerTick = Math.max(0L, globalBytesPerTick);
+        this.playerBytesPerTick = Math.max(0L, playerBytesPerTick);
+    }
+
+    public boolean submit(UUID playerUuid, Runnable task) {
+        if (playerUuid == null || task == null || workers.isShutdown()) {
+            return false;
+        }
+        return lanes.computeIfAbsent(playerUuid, PlayerLane::new).offer(task);
+    }
+
+    public interface PacketStream {
+        byte[] next() throws IOException;
+
+        void close();
+    }
+
+    public void stream(UUID playerUuid, String channel, PacketStream source, Consumer<Exception> onFailure) {
+        if (playerUuid == null || channel == null || source == null) {
+            return;
+        }
+        ActiveStream stream = new ActiveStream(playerUuid, channel, source, onFailure);
+        stream.beginRefill();
+        stream.refill();
+        streams.add(stream);
+    }
+
+    public void dispatch(UUID playerUuid, String channel, byte[] data) {
+        if (playerUuid == null || channel == null || data == null) {
+            return;
+        }
+        outbound.add(new OutboundPacket(playerUuid, channel, data));
+    }
+
+    public void cancel(UUID playerUuid) {
+        PlayerLane lane = lanes.remove(playerUuid);
+        if (lane != null) {
+            lane.cancel();
+        }
+        outbound.removeIf(packet -> packet.playerUuid().equals(playerUuid));
+        streams.removeIf(stream -> {
+            if (!stream.playerUuid.equals(playerUuid)) {
+                return false;
+            }
+            stream.close();
+            return true;
+        });
+    }
+
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        lanes.values().forEach(PlayerLane::cancel);
+        lanes.clear();
+        streams.forEach(ActiveStream::close);
+        streams.clear();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5L, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        outbound.clear();
+    }
+
+    private void flush() {
+        long globalLimit = globalBytesPerTick;
+        long playerLimit = playerBytesPerTick;
+        long globalRemaining = globalLimit > 0 ? globalLimit : Long.MAX_VALUE;
+        Map<UUID, Player> players = new HashMap<>();
+        Map<UUID, Long> playerSpent = new HashMap<>();
+
+        OutboundPacket packet;
+        while ((packet = outbound.poll()) != null) {
+            Player player = players.computeIfAbsent(packet.playerUuid(), plugin.getServer()::getPlayer);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            player.sendPluginMessage(plugin, packet.channel(), packet.data());
+            globalRemaining -= packet.data().length;
+            playerSpent.merge(packet.playerUuid(), (long) packet.data().length, Long::sum);
+        }
+
+        List<ActiveStream> active = new ArrayList<>();
+        Iterator<ActiveStream> it = streams.iterator();
+        while (it.hasNext()) {
+            ActiveStream stream = it.next();
+            Player player = players.computeIfAbsent(stream.playerUuid, plugin.getServer()::getPlayer);
+            if (player == null || !player.isOnline() || stream.isFinished()) {
+                stream.close();
+                it.remove();
+                continue;
+            }
+            active.add(stream);
+        }
+        if (active.isEmpty()) {
+            return;
+        }
+
+        int size = active.size();
+        int start = Math.floorMod(roundRobinCursor++, size);
+        boolean progressed = true;
+        while (globalRemaining > 0 && progressed) {
+            progressed = false;
+            for (int i = 0; i < size && globalRemaining > 0; i++) {
+                ActiveStream stream = active.get((start + i) % size);
+                long spent = playerSpent.getOrDefault(stream.playerUuid, 0L);
+                if (playerLimit > 0 && spent >= playerLimit) {
+                    continue;
+                }
+                byte[] data = stream.poll();
+                if (data == null) {
+                    continue;
+                }
+                players.get(stream.playerUuid).sendPluginMessage(plugin, stream.channel, data);
+                globalRemaining -= data.length;
+                playerSpent.put(stream.playerUuid, spent + data.length);
+                progressed = true;
+            }
+        }
+
+        for (ActiveStream stream : active) {
+            if (stream.isFinished()) {
+                stream.close();
+                streams.remove(stream);
+            } else {
+                stream.requestRefill();
+            }
+        }
+    }
+
+    private record OutboundPacket(UUID playerUuid, String channel, byte[] data) {
+    }
+
+    private final class ActiveStream {
+        private final UUID playerUuid;
+        private final String channel;
+        private final PacketStream source;
+        private final Consumer<Exception> onFailure;
+        private final ArrayDeque<byte[]> ready = new ArrayDeque<>();
+        private boolean refilling;
+        private boolean exhausted;
+        private boolean closed;
+
+        ActiveStream(UUID playerUuid, String channel, PacketStream source, Consumer<Exception> onFailure) {
+            this.playerUuid = playerUuid;
+            this.channel = channel;
+            this.source = source;
+            this.onFailure = onFailure;
+        }
+
+        synchronized byte[] poll() {
+            return ready.pollFirst();
+        }
+
+        synchronized boolean isFinished() {
+            return closed || (exhausted && ready.isEmpty() && !refilling);
+        }
+
+        synchronized void beginRefill() {
+            refilling = true;
+        }
+
+        void requestRefill() {
+            synchronized (this) {
+                if (refilling || exhausted || closed || ready.size() > windowPackets / 2) {
+                    return;
+                }
+                refilling = true;
+            }
+            if (!submit(playerUuid, this::refill)) {
+                synchronized (this) {
+                    refilling = false;
+                }
+            }
+        }
+
+        void refill() {
+            try {
+                while (true) {
+                    synchronized (this) {
+                        if (closed || exhausted || ready.size() >= windowPackets) {
+                            return;
+                        }
+                    }
+                    byte[] data = source.next();
+                    synchronized (this) {
+                        if (data == null) {
+                            exhausted = true;
+                            return;
+                        }
+                        ready.addLast(data);
+                    }
+                }
+            } catch (Exception e) {
+                boolean wasClosed;
+                synchronized (this) {
+                    exhausted = true;
+                    wasClosed = closed;
+                    if (onFailure != null) {
+                        ready.clear();
+                    }
+                }
+                if (!wasClosed) {
+                    logger.log(Level.WARNING, "读取资源传输数据失败: player=" + playerUuid, e);
+                    if (onFailure != null) {
+                        onFailure.accept(e);
+                    }
+                }
+            } finally {
+                boolean closeSource;
+                synchronized (this) {
+                    refilling = false;
+                    closeSource = closed;
+                }
+                if (closeSource) {
+                    source.close();
+                }
+            }
+        }
+
+        void close() {
+            boolean closeSource;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                ready.clear();
+                closeSource = !refilling;
+            }
+            if (closeSource) {
+                source.close();
+            }
+        }
+    }
+
+    private final class PlayerLane implements Runnable {
+        private final UUID playerUuid;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean cancelled;
+
+        PlayerLane(UUID playerUuid) {
+            this.playerUuid = playerUuid;
+        }
+
+        boolean offer(Runnable task) {
+            synchronized (this) {
+                if (cancelled || tasks.size() >= maxQueuedPerPlayer) {
+                    return false;
+                }
+                tasks.addLast(task);
+                if (scheduled) {
+                    return true;
+                }
+                scheduled = true;
+            }
+            return schedule();
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            tasks.clear();
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (this) {
+                task = cancelled ? null : tasks.pollFirst();
+                if (task == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, "资源传输任务执行失败: player=" + playerUuid, t);
+            }
+
+            synchronized (this) {
+                if (cancelled || tasks.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            schedule();
+        }
+
+        private boolean schedule() {
+            try {
+                workers.execute(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    tasks.clear();
+                    scheduled = false;
+                }
+                return false;
+            }
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MmdSkin-Transfer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
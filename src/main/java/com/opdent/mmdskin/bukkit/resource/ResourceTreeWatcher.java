@@ -0,0 +1,175 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+public final class ResourceTreeWatcher {
+    private static final int MAX_DELAY_FACTOR = 10;
+
+    private final Map<String, Path> zoneRoots;
+    private final long debounceNanos;
+    private final long maxDelayNanos;
+    private final Listener listener;
+    private final Logger logger;
+    private final Map<WatchKey, WatchedDir> watchedDirs = new HashMap<>();
+    private final Map<String, Set<Path>> pending = new LinkedHashMap<>();
+    private final Set<String> overflowed = new LinkedHashSet<>();
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    public interface Listener {
+        void filesChanged(String zone, Path zoneRoot, Set<Path> paths);
+
+        void zoneOverflowed(String zone, Path zoneRoot);
+    }
+
+    private record WatchedDir(String zone, Path dir) {
+    }
+
+    public ResourceTreeWatcher(Map<String, Path> zoneRoots, long debounceMillis, Listener listener, Logger logger) {
+        this.zoneRoots = new LinkedHashMap<>(zoneRoots);
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(50L, debounceMillis));
+        this.maxDelayNanos = debounceNanos * MAX_DELAY_FACTOR;
+        this.listener = listener;
+        this.logger = logger;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Map.Entry<String, Path> zone : zoneRoots.entrySet()) {
+            if (zone.getValue() == null) {
+                continue;
+            }
+            Files.createDirectories(zone.getValue());
+            registerTree(zone.getKey(), zone.getValue());
+        }
+        running = true;
+        thread = new Thread(this::run, "MmdSkin-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        long firstEvent = 0L;
+        long lastEvent = 0L;
+        try {
+            while (running) {
+                WatchKey key;
+                if (pending.isEmpty() && overflowed.isEmpty()) {
+                    key = watchService.take();
+                    firstEvent = System.nanoTime();
+                } else {
+                    long deadline = Math.min(lastEvent + debounceNanos, firstEvent + maxDelayNanos);
+                    long wait = deadline - System.nanoTime();
+                    key = wait > 0L ? watchService.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (key == null) {
+                        flush();
+                        continue;
+                    }
+                }
+                lastEvent = System.nanoTime();
+                handle(key);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private void handle(WatchKey key) {
+        WatchedDir watched = watchedDirs.get(key);
+        if (watched == null) {
+            key.cancel();
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed.add(watched.zone());
+                continue;
+            }
+            Path child = watched.dir().resolve((Path) event.context());
+            pending.computeIfAbsent(watched.zone(), zone -> new LinkedHashSet<>()).add(child);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                registerTree(watched.zone(), child);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    private void flush() {
+        for (String zone : overflowed) {
+            pending.remove(zone);
+            Path zoneRoot = zoneRoots.get(zone);
+            registerTree(zone, zoneRoot);
+            try {
+                listener.zoneOverflowed(zone, zoneRoot);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "处理资源目录变更失败: " + zone, e);
+            }
+        }
+        overflowed.clear();
+        for (Map.Entry<String, Set<Path>> zone : pending.entrySet()) {
+            try {
+                listener.filesChanged(zone.getKey(), zoneRoots.get(zone.getKey()), zone.getValue());
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "处理资源目录变更失败: " + zone.getKey(), e);
+            }
+        }
+        pending.clear();
+    }
+
+    private void registerTree(String zone, Path root) {
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.filter(path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)).forEach(dir -> {
+                try {
+                    WatchKey key = dir.register(
+                            watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY
+                    );
+                    watchedDirs.put(key, new WatchedDir(zone, dir));
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "无法监听资源目录: " + dir, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "无法监听资源目录: " + root, e);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+public final class ResourceUploadSession {
+    public enum WriteResult {
+        WRITTEN,
+        DUPLICATE,
+        INVALID,
+        TOO_LARGE,
+        QUOTA_EXCEEDED,
+        RATE_LIMITED
+    }
+
+    private final UUID playerUuid;
+    private final String zone;
+    private final String folderName;
+    private final String relativePath;
+    private final Path tempFile;
+    private final int defaultChunkSize;
+    private final long expectedSize;
+    private final String expectedDigest;
+    private final MessageDigest hasher;
+    private final UploadQuota quota;
+    private final List<ContentDefinedChunker.Chunk> layout;
+    private final BitSet received = new BitSet();
+    private int layoutPages;
+    private boolean layoutComplete;
+    private boolean discarded;
+    private FileChannel channel;
+    private int chunkCount;
+    private int chunkSize;
+    private long length;
+    private long reservedBytes;
+    private int hashedChunks;
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    public ResourceUploadSession(UUID playerUuid, String zone, String folderName, String relativePath, Path tempFile,
+                                 int chunkCount, int defaultChunkSize, long expectedSize, String expectedDigest,
+                                 UploadQuota quota, boolean contentDefined) throws IOException {
+        this.playerUuid = playerUuid;
+        this.zone = zone;
+        this.folderName = folderName;
+        this.relativePath = relativePath;
+        this.tempFile = tempFile;
+        this.chunkCount = Math.max(0, chunkCount);
+        this.defaultChunkSize = defaultChunkSize;
+        this.expectedSize = Math.max(0L, expectedSize);
+        this.expectedDigest = expectedDigest == null ? "" : expectedDigest.toLowerCase(Locale.ROOT);
+        this.hasher = !isValidDigest(this.expectedDigest) ? null : this.expectedDigest.length() == 32
+                ? ResourceHashing.newDigest("MD5")
+                : ResourceHashing.newDigest("SHA-256");
+        this.quota = quota;
+        this.layout = contentDefined ? new ArrayList<>() : null;
+        if (contentDefined) {
+            this.chunkCount = 0;
+        }
+    }
+
+    public static boolean isValidDigest(String digest) {
+        if (digest == null || (digest.length() != 32 && digest.length() != 64)) {
+            return false;
+        }
+        for (int i = 0; i < digest.length(); i++) {
+            if (Character.digit(digest.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isContentDefined() {
+        return layout != null;
+    }
+
+    public synchronized boolean isLayoutComplete() {
+        return layout == null || layoutComplete;
+    }
+
+    public synchronized WriteResult appendLayout(int page, int pages, byte[] data) throws IOException {
+        if (layout == null || layoutComplete || page != layoutPages || pages <= page) {
+            return WriteResult.INVALID;
+        }
+        long end = layout.isEmpty() ? 0L : layout.get(layout.size() - 1).end();
+        List<ContentDefinedChunker.Chunk> chunks = BukkitResourceTransferCodec.decodeChunkList(data, end);
+        if (!chunks.isEmpty()) {
+            end = chunks.get(chunks.size() - 1).end();
+        }
+        if (!quota.allowsFile(end) || end > expectedSize) {
+            return WriteResult.TOO_LARGE;
+        }
+        layout.addAll(chunks);
+        layoutPages++;
+        lastActivity = System.currentTimeMillis();
+        if (layoutPages == pages) {
+            if (end != expectedSize) {
+                return WriteResult.INVALID;
+            }
+            layoutComplete = true;
+            chunkCount = layout.size();
+            length = end;
+        }
+        return WriteResult.WRITTEN;
+    }
+
+    public int seed(TransferPayload source, List<ContentDefinedChunker.Chunk> sourceChunks) throws IOException {
+        List<ContentDefinedChunker.Chunk> wantedChunks;
+        BitSet present;
+        synchronized (this) {
+            if (layout == null || !layoutComplete) {
+                return 0;
+            }
+            wantedChunks = List.copyOf(layout);
+            present = (BitSet) received.clone();
+        }
+        Map<ByteBuffer, ContentDefinedChunker.Chunk> available = new HashMap<>();
+        for (ContentDefinedChunker.Chunk chunk : sourceChunks) {
+            if (chunk.end() <= source.size()) {
+                available.putIfAbsent(ByteBuffer.wrap(chunk.digest()), chunk);
+            }
+        }
+        MessageDigest check = ResourceHashing.newDigest("SHA-256");
+        byte[] buffer = new byte[ContentDefinedChunker.MAX_SIZE];
+        int seeded = 0;
+        for (int i = 0; i < wantedChunks.size(); i++) {
+            ContentDefinedChunker.Chunk wanted = wantedChunks.get(i);
+            ContentDefinedChunker.Chunk match = available.get(ByteBuffer.wrap(wanted.digest()));
+            if (present.get(i) || match == null || match.length() != wanted.length()) {
+                continue;
+            }
+            source.read(match.offset(), buffer, 0, match.length());
+            check.update(buffer, 0, match.length());
+            if (!wanted.matches(check.digest())) {
+                continue;
+            }
+            WriteResult result = writeSeeded(i, wanted, buffer);
+            if (result == WriteResult.WRITTEN) {
+                seeded++;
+            } else if (result == WriteResult.QUOTA_EXCEEDED) {
+                break;
+            }
+        }
+        return seeded;
+    }
+
+    private synchronized WriteResult writeSeeded(int index, ContentDefinedChunker.Chunk wanted, byte[] data) throws IOException {
+        if (received.get(index)) {
+            return WriteResult.DUPLICATE;
+        }
+        if (!reserve(wanted.end())) {
+            return WriteResult.QUOTA_EXCEEDED;
+        }
+        FileChannel target = channel();
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, wanted.length());
+        long cursor = wanted.offset();
+        while (buffer.hasRemaining()) {
+            cursor += target.write(buffer, cursor);
+        }
+        received.set(index);
+        if (hasher != null) {
+            catchUpDigest(target);
+        }
+        return WriteResult.WRITTEN;
+    }
+
+    public synchronized boolean reserve(long bytes) {
+        if (discarded) {
+            return false;
+        }
+        if (bytes <= reservedBytes) {
+            return true;
+        }
+        if (!quota.tryReserve(playerUuid, bytes - reservedBytes)) {
+            return false;
+        }
+        reservedBytes = bytes;
+        return true;
+    }
+
+    public long lastActivity() {
+        return lastActivity;
+    }
+
+    public UUID playerUuid() {
+        return playerUuid;
+    }
+
+    public String zone() {
+        return zone;
+    }
+
+    public String folderName() {
+        return folderName;
+    }
+
+    public String relativePath() {
+        return relativePath;
+    }
+
+    public Path tempFile() {
+        return tempFile;
+    }
+
+    public boolean matches(UUID player, String zone, String folderName, String relativePath) {
+        return playerUuid.equals(player)
+                && this.zone.equals(zone)
+                && this.folderName.equals(folderName)
+                && this.relativePath.equals(relativePath);
+    }
+
+    public synchronized WriteResult write(int chunkIndex, int declaredCount, ByteBuffer payload) throws IOException {
+        if (declaredCount <= 0 || chunkIndex < 0 || chunkIndex >= declaredCount) {
+            return WriteResult.INVALID;
+        }
+        if (layout != null && (!layoutComplete || declaredCount != chunkCount)) {
+            return WriteResult.INVALID;
+        }
+        if (chunkCount == 0) {
+            chunkCount = declaredCount;
+        } else if (chunkCount != declaredCount) {
+            return WriteResult.INVALID;
+        }
+        if (received.get(chunkIndex)) {
+            return WriteResult.DUPLICATE;
+        }
+        lastActivity = System.currentTimeMillis();
+
+        int size = payload.remaining();
+        boolean last = chunkIndex == chunkCount - 1;
+        if (layout != null) {
+            ContentDefinedChunker.Chunk expected = layout.get(chunkIndex);
+            if (size != expected.length()) {
+                return WriteResult.INVALID;
+            }
+            MessageDigest check = ResourceHashing.newDigest("SHA-256");
+            check.update(payload.duplicate());
+            if (!expected.matches(check.digest())) {
+                return WriteResult.INVALID;
+            }
+        } else if (!last) {
+            if (chunkSize == 0) {
+                chunkSize = size;
+            }
+            if (size != chunkSize || size == 0) {
+                return WriteResult.INVALID;
+            }
+        } else {
+            if (chunkSize == 0 && chunkCount > 1) {
+                chunkSize = defaultChunkSize;
+            }
+            if (chunkSize != 0 && size > chunkSize) {
+                return WriteResult.INVALID;
+            }
+        }
+
+        long position = chunkStart(chunkIndex);
+        long end = position + size;
+        if (!quota.allowsFile(end) || end > expectedSize) {
+            return WriteResult.TOO_LARGE;
+        }
+        if (!reserve(end)) {
+            return WriteResult.QUOTA_EXCEEDED;
+        }
+        if (!quota.tryConsume(playerUuid, size)) {
+            return WriteResult.RATE_LIMITED;
+        }
+
+        ByteBuffer data = payload.duplicate();
+        FileChannel target = channel();
+        long cursor = position;
+        while (payload.hasRemaining()) {
+            cursor += target.write(payload, cursor);
+        }
+        if (last && layout == null) {
+            length = end;
+        }
+        received.set(chunkIndex);
+        if (hasher != null && chunkIndex == hashedChunks) {
+            hasher.update(data);
+            hashedChunks++;
+            catchUpDigest(target);
+        }
+        return WriteResult.WRITTEN;
+    }
+
+    public synchronized String verify() throws IOException {
+        if (length != expectedSize) {
+            return "size_mismatch";
+        }
+        if (hasher == null) {
+            return "digest_required";
+        }
+        catchUpDigest(channel());
+        if (hashedChunks < chunkCount) {
+            return "digest_incomplete";
+        }
+        String actual = ResourceHashing.toHex(hasher.digest());
+        return actual.equals(expectedDigest) ? null : "digest_mismatch";
+    }
+
+    private void catchUpDigest(FileChannel target) throws IOException {
+        ByteBuffer buffer = null;
+        while (hashedChunks < chunkCount && received.get(hashedChunks)) {
+            long position = chunkStart(hashedChunks);
+            long end = chunkEnd(hashedChunks);
+            int size = (int) (end - position);
+            if (buffer == null || buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(Math.max(size, Math.max(chunkSize, ContentDefinedChunker.MAX_SIZE)));
+            }
+            buffer.clear().limit(size);
+            long cursor = position;
+            while (buffer.hasRemaining()) {
+                int read = target.read(buffer, cursor);
+                if (read < 0) {
+                    throw new IOException("上传暂存文件被截断: " + tempFile);
+                }
+                cursor += read;
+            }
+            buffer.flip();
+            hasher.update(buffer);
+            hashedChunks++;
+        }
+    }
+
+    private long chunkStart(int index) {
+        return layout != null ? layout.get(index).offset() : (long) index * chunkSize;
+    }
+
+    private long chunkEnd(int index) {
+        if (layout != null) {
+            return layout.get(index).end();
+        }
+        return index == chunkCount - 1 ? length : chunkStart(index) + chunkSize;
+    }
+
+    public synchronized int chunkCount() {
+        return chunkCount;
+    }
+
+    public synchronized boolean isComplete() {
+        return isLayoutComplete() && received.cardinality() >= chunkCount;
+    }
+
+    public synchronized BitSet missingChunks() {
+        BitSet missing = new BitSet(chunkCount);
+        missing.set(0, chunkCount);
+        missing.andNot(received);
+        return missing;
+    }
+
+    public synchronized void complete() throws IOException {
+        FileChannel target = channel();
+        if (chunkCount > 0 && target.size() > length) {
+            target.truncate(length);
+        }
+        target.force(false);
+        close();
+        releaseQuota();
+    }
+
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+
+    public synchronized void discard() {
+        discarded = true;
+        close();
+        releaseQuota();
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private synchronized void releaseQuota() {
+        quota.release(playerUuid, reservedBytes);
+        reservedBytes = 0L;
+    }
+
+    private FileChannel channel() throws IOException {
+        if (discarded) {
+            throw new IOException("上传会话已结束: " + tempFile);
+        }
+        if (channel == null) {
+            Files.createDirectories(tempFile.getParent());
+            channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,144 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+public final class SegmentedArchive implements TransferPayload {
+    private final Build build;
+    private final byte[] prefix;
+    private final long[] offsets;
+    private boolean closed;
+
+    SegmentedArchive(Build build, byte[] header, int[] lengths) {
+        this.build = build;
+        ByteBuffer table = ByteBuffer.allocate(header.length + Integer.BYTES * lengths.length).put(header);
+        this.offsets = new long[lengths.length + 1];
+        offsets[0] = table.capacity();
+        for (int i = 0; i < lengths.length; i++) {
+            table.putInt(lengths[i]);
+            offsets[i + 1] = offsets[i] + lengths[i];
+        }
+        this.prefix = table.array();
+    }
+
+    @Override
+    public long size() {
+        return offsets[offsets.length - 1];
+    }
+
+    public int segmentCount() {
+        return offsets.length - 1;
+    }
+
+    public String tag(String sourceDigest) {
+        CRC32C crc = new CRC32C();
+        if (sourceDigest != null) {
+            crc.update(sourceDigest.getBytes(StandardCharsets.UTF_8));
+        }
+        crc.update(prefix);
+        return Long.toHexString(build.generation) + "-" + HexFormat.of().toHexDigits((int) crc.getValue());
+    }
+
+    @Override
+    public void read(long position, byte[] dst, int offset, int length) throws IOException {
+        if (position < 0 || position + length > size()) {
+            throw new EOFException("read past end of payload: " + (position + length) + " > " + size());
+        }
+        long cursor = position;
+        int filled = 0;
+        while (filled < length) {
+            int count;
+            if (cursor < prefix.length) {
+                count = (int) Math.min(length - filled, prefix.length - cursor);
+                System.arraycopy(prefix, (int) cursor, dst, offset + filled, count);
+            } else {
+                int index = Arrays.binarySearch(offsets, cursor);
+                index = index >= 0 ? index : -index - 2;
+                count = (int) Math.min(length - filled, offsets[index + 1] - cursor);
+                segment(index).read(cursor - offsets[index], dst, offset + filled, count);
+            }
+            cursor += count;
+            filled += count;
+        }
+    }
+
+    public TransferPayload segment(int index) throws IOException {
+        return await(build.segments.get(index));
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        build.release();
+    }
+
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待分段加密时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException wrapped && wrapped.getCause() != null
+                    ? wrapped.getCause()
+                    : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("分段加密失败", cause);
+        }
+    }
+
+    static void closeQuietly(TransferPayload payload) {
+        try {
+            payload.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    static final class Build {
+        final long generation;
+        final byte[] header;
+        final List<CompletableFuture<TransferPayload>> segments;
+        final CompletableFuture<int[]> lengths;
+        private int refs;
+
+        Build(long generation, byte[] header, List<CompletableFuture<TransferPayload>> segments, CompletableFuture<int[]> lengths) {
+            this.generation = generation;
+            this.header = header;
+            this.segments = segments;
+            this.lengths = lengths;
+        }
+
+        synchronized void retain() {
+            refs++;
+        }
+
+        void release() {
+            synchronized (this) {
+                if (--refs > 0) {
+                    return;
+                }
+            }
+            for (CompletableFuture<TransferPayload> segment : segments) {
+                segment.thenAccept(SegmentedArchive::closeQuietly);
+            }
+        }
+    }
+}
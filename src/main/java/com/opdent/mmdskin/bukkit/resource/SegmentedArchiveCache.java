@@ -0,0 +1,164 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public final class SegmentedArchiveCache {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final PreparedPayloadCache cache;
+    private final TransferPayloadPreparer preparer;
+    private final Map<PreparedPayloadCache.Key, SegmentedArchive.Build> building = new HashMap<>();
+
+    public SegmentedArchiveCache(PreparedPayloadCache cache, TransferPayloadPreparer preparer) {
+        this.cache = cache;
+        this.preparer = preparer;
+    }
+
+    public SegmentedArchive open(PreparedPayloadCache.Key key, Path file, long plainLength, String relativePath,
+                                 boolean gzip, byte[] aesKey) throws IOException {
+        SegmentedArchive.Build build = joinBuilding(key);
+        if (build == null) {
+            build = reuse(key, plainLength, gzip);
+        }
+        if (build == null) {
+            boolean fresh = false;
+            synchronized (this) {
+                build = building.get(key);
+                if (build == null) {
+                    build = prepare(key, file, plainLength, relativePath, gzip, aesKey);
+                    fresh = true;
+                }
+                build.retain();
+            }
+            if (fresh) {
+                SegmentedArchive.Build prepared = build;
+                CompletableFuture.allOf(prepared.segments.toArray(CompletableFuture[]::new))
+                        .thenCompose(ignored -> prepared.lengths)
+                        .whenComplete((lengths, error) -> finish(key, prepared, error == null ? lengths : null));
+            }
+        }
+        try {
+            return new SegmentedArchive(build, build.header, SegmentedArchive.await(build.lengths));
+        } catch (IOException e) {
+            build.release();
+            throw e;
+        }
+    }
+
+    private synchronized SegmentedArchive.Build joinBuilding(PreparedPayloadCache.Key key) {
+        SegmentedArchive.Build build = building.get(key);
+        if (build != null) {
+            build.retain();
+        }
+        return build;
+    }
+
+    private SegmentedArchive.Build reuse(PreparedPayloadCache.Key key, long plainLength, boolean gzip) throws IOException {
+        int count = preparer.segmentCount(plainLength);
+        ByteBuffer manifest;
+        try (TransferPayload stored = cache.open(key, () -> null)) {
+            if (stored.size() != Long.BYTES + (long) Integer.BYTES * count) {
+                return null;
+            }
+            byte[] bytes = new byte[(int) stored.size()];
+            stored.read(0L, bytes, 0, bytes.length);
+            manifest = ByteBuffer.wrap(bytes);
+        }
+        long generation = manifest.getLong();
+        int[] lengths = new int[count];
+        List<CompletableFuture<TransferPayload>> segments = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                lengths[i] = manifest.getInt();
+                TransferPayload segment = cache.open(segmentKey(key, generation, i), () -> {
+                    throw new IOException("分段已被淘汰");
+                });
+                segments.add(CompletableFuture.completedFuture(segment));
+                if (segment.size() != lengths[i]) {
+                    throw new IOException("分段长度与索引不符");
+                }
+            }
+        } catch (IOException e) {
+            segments.forEach(segment -> SegmentedArchive.closeQuietly(segment.join()));
+            return null;
+        }
+        SegmentedArchive.Build build = new SegmentedArchive.Build(generation, preparer.segmentedHeader(plainLength, gzip),
+                segments, CompletableFuture.completedFuture(lengths));
+        build.retain();
+        return build;
+    }
+
+    private SegmentedArchive.Build prepare(PreparedPayloadCache.Key key, Path file, long plainLength, String relativePath,
+                                           boolean gzip, byte[] aesKey) {
+        long generation = newGeneration();
+        int count = preparer.segmentCount(plainLength);
+        int[] expected = new int[count];
+        boolean known = true;
+        List<CompletableFuture<TransferPayload>> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            expected[i] = preparer.segmentLength(plainLength, index, gzip);
+            known &= expected[i] >= 0;
+            PreparedPayloadCache.Key segmentKey = segmentKey(key, generation, index);
+            segments.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    TransferPayload segment = cache.open(segmentKey,
+                            () -> preparer.prepareSegment(file, plainLength, index, relativePath, gzip, aesKey));
+                    if (expected[index] >= 0 && segment.size() != expected[index]) {
+                        SegmentedArchive.closeQuietly(segment);
+                        throw new IOException("分段长度与预期不符: " + relativePath);
+                    }
+                    return segment;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, preparer.executor()));
+        }
+
+        CompletableFuture<int[]> lengths = known
+                ? CompletableFuture.completedFuture(expected)
+                : CompletableFuture.allOf(segments.toArray(CompletableFuture[]::new))
+                        .thenApply(ignored -> segments.stream().mapToInt(segment -> (int) segment.join().size()).toArray());
+        SegmentedArchive.Build build = new SegmentedArchive.Build(generation, preparer.segmentedHeader(plainLength, gzip),
+                segments, lengths);
+        build.retain();
+        building.put(key, build);
+        return build;
+    }
+
+    private void finish(PreparedPayloadCache.Key key, SegmentedArchive.Build build, int[] lengths) {
+        if (lengths != null) {
+            ByteBuffer manifest = ByteBuffer.allocate(Long.BYTES + Integer.BYTES * lengths.length).putLong(build.generation);
+            for (int length : lengths) {
+                manifest.putInt(length);
+            }
+            cache.put(key, manifest.array());
+        }
+        synchronized (this) {
+            building.remove(key, build);
+        }
+        build.release();
+    }
+
+    private static PreparedPayloadCache.Key segmentKey(PreparedPayloadCache.Key key, long generation, int index) {
+        return new PreparedPayloadCache.Key(key.source(), key.size(), key.lastModified(), key.keyFingerprint(),
+                key.encoding() + ";generation=" + Long.toHexString(generation) + ";segment=" + index);
+    }
+
+    private static long newGeneration() {
+        long generation;
+        do {
+            generation = RANDOM.nextLong();
+        } while (generation == 0L);
+        return generation;
+    }
+}
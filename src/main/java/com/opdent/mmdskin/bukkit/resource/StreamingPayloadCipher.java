@@ -0,0 +1,16 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface StreamingPayloadCipher extends PayloadCipher {
+    int overhead();
+
+    Encryption begin(byte[] key, ByteBuffer output) throws IOException;
+
+    interface Encryption {
+        void update(ByteBuffer input, ByteBuffer output) throws IOException;
+
+        void finish(ByteBuffer output) throws IOException;
+    }
+}
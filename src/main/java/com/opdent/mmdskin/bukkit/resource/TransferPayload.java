@@ -0,0 +1,82 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public interface TransferPayload extends Closeable {
+    long size();
+
+    void read(long position, byte[] dst, int offset, int length) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    static TransferPayload of(byte[] data) {
+        return new HeapPayload(data);
+    }
+
+    static TransferPayload open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new FilePayload(channel, channel.size());
+    }
+
+    final class HeapPayload implements TransferPayload {
+        private final byte[] data;
+
+        private HeapPayload(byte[] data) {
+            this.data = data == null ? new byte[0] : data;
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public void read(long position, byte[] dst, int offset, int length) throws IOException {
+            if (position < 0 || position + length > data.length) {
+                throw new EOFException("read past end of payload: " + (position + length) + " > " + data.length);
+            }
+            System.arraycopy(data, (int) position, dst, offset, length);
+        }
+    }
+
+    final class FilePayload implements TransferPayload {
+        private final FileChannel channel;
+        private final long size;
+
+        private FilePayload(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void read(long position, byte[] dst, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(dst, offset, length);
+            long cursor = position;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, cursor);
+                if (read < 0) {
+                    throw new EOFException("read past end of file: " + cursor + " >= " + size);
+                }
+                cursor += read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+public final class TransferPayloadPreparer {
+    private static final byte[] MMDARC_HEADER = "MMDARC".getBytes(StandardCharsets.UTF_8);
+    private static final byte MMDARC_VERSION = 0x01;
+    private static final byte MMDARC_VERSION_GZIP = 0x02;
+    private static final byte MMDARC_VERSION_SEGMENTED = 0x03;
+    private static final int SEGMENT_FLAG_GZIP = 0x01;
+    private static final int SEGMENT_HEADER_BYTES = 1 + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int SEGMENT_FRAME_BYTES = Integer.BYTES * 2;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    private final PayloadCipher cipher;
+    private final Executor executor;
+    private final int segmentSize;
+
+    public TransferPayloadPreparer(PayloadCipher cipher) {
+        this(cipher, Runnable::run, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public TransferPayloadPreparer(PayloadCipher cipher, Executor executor, int segmentSize) {
+        this.cipher = cipher;
+        this.executor = executor;
+        this.segmentSize = Math.max(64 * 1024, segmentSize);
+    }
+
+    public byte[] prepare(byte[] data, String relativePath, boolean gzip, byte[] key) throws IOException {
+        if (isEncryptedArchive(data)) {
+            return data;
+        }
+
+        byte[] body = gzip ? PayloadCompressor.gzip(data) : data;
+        if (key == null || !shouldEncrypt(relativePath)) {
+            return body;
+        }
+
+        return wrap(requireEncrypted(cipher.encrypt(body, key), relativePath), gzip);
+    }
+
+    public byte[] prepare(Path file, String relativePath, boolean gzip, byte[] key) throws IOException {
+        if (gzip || key == null || !shouldEncrypt(relativePath) || isEncryptedArchive(file)) {
+            return prepare(Files.readAllBytes(file), relativePath, gzip, key);
+        }
+        if (!(cipher instanceof StreamingPayloadCipher streaming)) {
+            return prepare(Files.readAllBytes(file), relativePath, false, key);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8 - MMDARC_HEADER.length - 1 - streaming.overhead()) {
+                throw new IOException("待加密文件过大: " + size);
+            }
+            ByteBuffer output = ByteBuffer.wrap(new byte[MMDARC_HEADER.length + 1 + streaming.overhead() + (int) size]);
+            output.put(MMDARC_HEADER).put(MMDARC_VERSION);
+            StreamingPayloadCipher.Encryption encryption = streaming.begin(key, output);
+            encryptRange(channel, 0L, size, encryption, output, file);
+            encryption.finish(output);
+            return finished(output);
+        }
+    }
+
+    private static void encryptRange(FileChannel channel, long from, long length, StreamingPayloadCipher.Encryption encryption,
+                                     ByteBuffer output, Path file) throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        long cursor = from;
+        long end = from + length;
+        while (cursor < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - cursor));
+            int read = channel.read(buffer, cursor);
+            if (read < 0) {
+                throw new IOException("加密时文件被截断: " + file);
+            }
+            cursor += read;
+            buffer.flip();
+            encryption.update(buffer, output);
+        }
+    }
+
+    private static byte[] finished(ByteBuffer output) {
+        byte[] result = output.array();
+        return output.position() == result.length ? result : Arrays.copyOf(result, output.position());
+    }
+
+    private static byte[] requireEncrypted(byte[] encrypted, String relativePath) throws IOException {
+        if (encrypted == null) {
+            throw new IOException("资源加密失败，拒绝明文下发: " + relativePath);
+        }
+        return encrypted;
+    }
+
+    private static byte[] wrap(byte[] encrypted, boolean gzip) {
+        byte[] result = new byte[MMDARC_HEADER.length + 1 + encrypted.length];
+        System.arraycopy(MMDARC_HEADER, 0, result, 0, MMDARC_HEADER.length);
+        result[MMDARC_HEADER.length] = gzip ? MMDARC_VERSION_GZIP : MMDARC_VERSION;
+        System.arraycopy(encrypted, 0, result, MMDARC_HEADER.length + 1, encrypted.length);
+        return result;
+    }
+
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    public int segmentCount(long plainLength) {
+        return Math.max(1, (int) ((plainLength + segmentSize - 1) / segmentSize));
+    }
+
+    public int segmentLength(long plainLength, int index, boolean gzip) {
+        if (gzip || !(cipher instanceof StreamingPayloadCipher streaming)) {
+            return -1;
+        }
+        long from = (long) index * segmentSize;
+        return streaming.overhead() + SEGMENT_FRAME_BYTES + (int) Math.max(0L, Math.min(segmentSize, plainLength - from));
+    }
+
+    public byte[] segmentedHeader(long plainLength, boolean gzip) {
+        return ByteBuffer.allocate(MMDARC_HEADER.length + 1 + SEGMENT_HEADER_BYTES)
+                .put(MMDARC_HEADER)
+                .put(MMDARC_VERSION_SEGMENTED)
+                .put((byte) (gzip ? SEGMENT_FLAG_GZIP : 0))
+                .putInt(segmentSize)
+                .putLong(plainLength)
+                .putInt(segmentCount(plainLength))
+                .array();
+    }
+
+    public byte[] prepareSegment(Path file, long plainLength, int index, String relativePath, boolean gzip, byte[] key) throws IOException {
+        long from = (long) index * segmentSize;
+        int length = (int) Math.max(0L, Math.min(segmentSize, plainLength - from));
+        if (!gzip && cipher instanceof StreamingPayloadCipher streaming) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer output = ByteBuffer.wrap(new byte[streaming.overhead() + SEGMENT_FRAME_BYTES + length]);
+                StreamingPayloadCipher.Encryption encryption = streaming.begin(key, output);
+                encryption.update(ByteBuffer.allocate(SEGMENT_FRAME_BYTES).putInt(index).putInt(segmentCount(plainLength)).flip(), output);
+                encryptRange(channel, from, length, encryption, output, file);
+                encryption.finish(output);
+                return finished(output);
+            }
+        }
+        ByteBuffer plain = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long cursor = from;
+            while (plain.hasRemaining()) {
+                int read = channel.read(plain, cursor);
+                if (read < 0) {
+                    throw new IOException("分段加密时文件被截断: " + file);
+                }
+                cursor += read;
+            }
+        }
+        return encryptSegment(plain.array(), index, segmentCount(plainLength), relativePath, gzip, key);
+    }
+
+    public byte[] prepareSegment(byte[] data, int index, String relativePath, boolean gzip, byte[] key) throws IOException {
+        int from = (int) Math.min(data.length, (long) index * segmentSize);
+        int to = (int) Math.min(data.length, (long) from + segmentSize);
+        return encryptSegment(Arrays.copyOfRange(data, from, to), index, segmentCount(data.length), relativePath, gzip, key);
+    }
+
+    private byte[] encryptSegment(byte[] plain, int index, int count, String relativePath, boolean gzip, byte[] key) throws IOException {
+        byte[] body = gzip ? PayloadCompressor.gzip(plain) : plain;
+        byte[] framed = ByteBuffer.allocate(SEGMENT_FRAME_BYTES + body.length)
+                .putInt(index)
+                .putInt(count)
+                .put(body)
+                .array();
+        return requireEncrypted(cipher.encrypt(framed, key), relativePath);
+    }
+
+    public static boolean shouldEncrypt(String relativePath) {
+        String lowerName = relativePath == null ? "" : relativePath.toLowerCase(Locale.ROOT);
+        return lowerName.endsWith(".pmx") || lowerName.endsWith(".pmd") || lowerName.endsWith(".vrm")
+                || lowerName.endsWith(".vmd") || lowerName.endsWith(".fbx")
+                || lowerName.endsWith(".png") || lowerName.endsWith(".jpg")
+                || lowerName.endsWith(".jpeg") || lowerName.endsWith(".tga");
+    }
+
+    public static boolean isEncryptedArchive(byte[] data) {
+        return data.length >= 7
+                && data[0] == 'M' && data[1] == 'M' && data[2] == 'D'
+                && data[3] == 'A' && data[4] == 'R' && data[5] == 'C';
+    }
+
+    public static boolean isEncryptedArchive(Path file) throws IOException {
+        byte[] header = new byte[MMDARC_HEADER.length + 1];
+        try (InputStream is = Files.newInputStream(file)) {
+            return is.readNBytes(header, 0, header.length) == header.length && isEncryptedArchive(header);
+        }
+    }
+}
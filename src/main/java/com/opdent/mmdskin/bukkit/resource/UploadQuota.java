@@ -0,0 +1,108 @@
+package com.opdent.mmdskin.bukkit.resource;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+public final class UploadQuota {
+    private static final long WINDOW_NANOS = 60_000_000_000L;
+
+    private final Map<UUID, Long> playerBytes = new HashMap<>();
+    private final Map<UUID, Bucket> transferBuckets = new HashMap<>();
+    private volatile long maxFileBytes;
+    private volatile long playerLimit;
+    private volatile long globalLimit;
+    private volatile long playerBytesPerMinute;
+    private long globalBytes;
+
+    private static final class Bucket {
+        private double tokens;
+        private long updatedNanos;
+
+        private Bucket(double tokens, long updatedNanos) {
+            this.tokens = tokens;
+            this.updatedNanos = updatedNanos;
+        }
+
+        private void refill(long rate, long now) {
+            tokens = Math.min(rate, tokens + (double) (now - updatedNanos) * rate / WINDOW_NANOS);
+            updatedNanos = now;
+        }
+    }
+
+    public UploadQuota(long maxFileBytes, long playerLimit, long globalLimit, long playerBytesPerMinute) {
+        setLimits(maxFileBytes, playerLimit, globalLimit, playerBytesPerMinute);
+    }
+
+    public void setLimits(long maxFileBytes, long playerLimit, long globalLimit, long playerBytesPerMinute) {
+        this.maxFileBytes = maxFileBytes;
+        this.playerLimit = playerLimit;
+        this.globalLimit = globalLimit;
+        this.playerBytesPerMinute = playerBytesPerMinute;
+    }
+
+    public synchronized boolean tryConsume(UUID player, long bytes) {
+        long rate = playerBytesPerMinute;
+        if (rate <= 0L || bytes <= 0L) {
+            return true;
+        }
+        long now = System.nanoTime();
+        Bucket bucket = transferBuckets.computeIfAbsent(player, ignored -> new Bucket(rate, now));
+        bucket.refill(rate, now);
+        if (bucket.tokens < bytes) {
+            return false;
+        }
+        bucket.tokens -= bytes;
+        return true;
+    }
+
+    public synchronized void pruneIdleBuckets() {
+        long rate = playerBytesPerMinute;
+        long now = System.nanoTime();
+        Iterator<Bucket> it = transferBuckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket bucket = it.next();
+            bucket.refill(rate, now);
+            if (rate <= 0L || bucket.tokens >= rate) {
+                it.remove();
+            }
+        }
+    }
+
+    public boolean allowsFile(long size) {
+        long limit = maxFileBytes;
+        return limit <= 0L || size <= limit;
+    }
+
+    public synchronized boolean tryReserve(UUID player, long bytes) {
+        if (bytes <= 0L) {
+            return true;
+        }
+        long current = playerBytes.getOrDefault(player, 0L);
+        long playerMax = playerLimit;
+        long globalMax = globalLimit;
+        if (playerMax > 0L && current + bytes > playerMax) {
+            return false;
+        }
+        if (globalMax > 0L && globalBytes + bytes > globalMax) {
+            return false;
+        }
+        playerBytes.put(player, current + bytes);
+        globalBytes += bytes;
+        return true;
+    }
+
+    public synchronized void release(UUID player, long bytes) {
+        if (bytes <= 0L) {
+            return;
+        }
+        long remaining = playerBytes.getOrDefault(player, 0L) - bytes;
+        if (remaining > 0L) {
+            playerBytes.put(player, remaining);
+        } else {
+            playerBytes.remove(player);
+        }
+        globalBytes = Math.max(0L, globalBytes - bytes);
+    }
+}
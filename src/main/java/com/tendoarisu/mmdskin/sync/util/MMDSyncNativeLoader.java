@@ -1,14 +1,24 @@
 package com.tendoarisu.mmdskin.sync.util;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.logging.Logger;
 
 public final class MMDSyncNativeLoader {
     private static final Logger logger = Logger.getLogger("MmdSkin-Native");
+    private static final long LEGACY_DIR_TTL_MS = 24L * 60L * 60L * 1000L;
     private static volatile boolean loaded;
+    private static volatile Path cacheDirectory;
 
     private static final boolean isWindows = System.getProperty("os.name").toLowerCase().contains("windows");
     private static final boolean isMacOS = System.getProperty("os.name").toLowerCase().contains("mac");
@@ -20,6 +30,10 @@ public final class MMDSyncNativeLoader {
         isArm64 = arch.contains("aarch64") || arch.contains("arm64");
     }
 
+    public static void setCacheDirectory(Path directory) {
+        cacheDirectory = directory;
+    }
+
     public static synchronized void load() {
         if (loaded) {
             return;
@@ -60,24 +74,132 @@ public final class MMDSyncNativeLoader {
 
     private static File extractLibrary(String resourcePath, String fileName) {
         try {
-            InputStream is = MMDSyncNativeLoader.class.getResourceAsStream(resourcePath);
-            if (is == null) {
-                logger.severe("找不到原生库资源: " + resourcePath);
-                return null;
+            Path root = cacheDirectory != null
+                    ? cacheDirectory
+                    : Path.of(System.getProperty("java.io.tmpdir"), "mmdskin_natives");
+            String[] stamp = readStamp(resourcePath + ".sha256");
+            byte[] library = null;
+            String hash;
+            long size;
+            if (stamp != null) {
+                hash = stamp[0];
+                size = Long.parseLong(stamp[1]);
+            } else {
+                library = readResource(resourcePath);
+                if (library == null) {
+                    return null;
+                }
+                hash = sha256Hex(library);
+                size = library.length;
             }
 
-            File tempDir = new File(System.getProperty("java.io.tmpdir"), "mmdskin_natives_" + System.currentTimeMillis());
-            if (!tempDir.exists()) tempDir.mkdirs();
-            
-            File extractedFile = new File(tempDir, fileName);
-            Files.copy(is, extractedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            is.close();
-            
-            extractedFile.deleteOnExit();
-            return extractedFile;
+            Path dir = root.resolve(hash.substring(0, 16));
+            Path target = dir.resolve(fileName);
+            removeStaleCopies(root, dir);
+            if (matches(target, size, hash)) {
+                return target.toFile();
+            }
+
+            if (library == null) {
+                library = readResource(resourcePath);
+                if (library == null) {
+                    return null;
+                }
+                if (!sha256Hex(library).equals(hash)) {
+                    logger.severe("原生库校验失败: " + resourcePath);
+                    return null;
+                }
+            }
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, fileName, ".tmp");
+            try {
+                Files.write(temp, library);
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                if (!matches(target, size, hash)) {
+                    throw e;
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return target.toFile();
         } catch (Exception e) {
             logger.severe("提取原生库失败: " + e.getMessage());
             return null;
         }
     }
+
+    private static boolean matches(Path file, long size, String hash) {
+        try {
+            return Files.isRegularFile(file)
+                    && Files.size(file) == size
+                    && sha256Hex(Files.readAllBytes(file)).equals(hash);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] readResource(String resourcePath) throws IOException {
+        try (InputStream is = MMDSyncNativeLoader.class.getResourceAsStream(resourcePath)) {
+            if (is == null) {
+                logger.severe("找不到原生库资源: " + resourcePath);
+                return null;
+            }
+            return is.readAllBytes();
+        }
+    }
+
+    private static String[] readStamp(String resourcePath) throws IOException {
+        try (InputStream is = MMDSyncNativeLoader.class.getResourceAsStream(resourcePath)) {
+            if (is == null) {
+                return null;
+            }
+            String[] parts = new String(is.readAllBytes(), StandardCharsets.US_ASCII).trim().split("\\s+");
+            return parts.length == 2 && parts[0].length() == 64 ? parts : null;
+        }
+    }
+
+    private static void removeStaleCopies(Path root, Path current) {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                if (!dir.equals(current)) {
+                    deleteQuietly(dir);
+                }
+            }
+        } catch (IOException ignored) {
+        }
+
+        Path tmp = Path.of(System.getProperty("java.io.tmpdir"));
+        long cutoff = System.currentTimeMillis() - LEGACY_DIR_TTL_MS;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(tmp, "mmdskin_natives_*")) {
+            for (Path dir : dirs) {
+                if (Files.isDirectory(dir) && Files.getLastModifiedTime(dir).toMillis() < cutoff) {
+                    deleteQuietly(dir);
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }